@@ -0,0 +1,76 @@
+package org.example.bench;
+
+import org.example.db.DatabaseManager;
+import org.example.db.ImportResult;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.json.BundleManifest;
+import org.example.json.DeckBundle;
+import org.example.json.JsonManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Wall-clock time of the per-deck gzip bundle against the single streaming JSON file, exported
+ * from a file-backed database so that the bundle's parallel readers are real.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BundleBenchmark {
+    @Param({"100000"})
+    private int cardCount;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private Path dir;
+    private DatabaseManager db;
+    private Path bundle;
+    private Path json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("flashcards-bench-bundle");
+        db = DatabaseManager.open("jdbc:sqlite:" + dir.resolve("bench.db"));
+        new SyntheticDeckGenerator(1, 1000).populate(db, cardCount);
+        bundle = dir.resolve("bundle");
+        json = dir.resolve("decks.json");
+        DeckBundle.write(db, bundle, parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean exportJson() {
+        return JsonManager.exportDecksStreaming(db, json.toString());
+    }
+
+    @Benchmark
+    public BundleManifest writeBundle() throws IOException {
+        return DeckBundle.write(db, bundle, parallelism);
+    }
+
+    @Benchmark
+    public ImportResult readBundle() throws IOException {
+        try (DatabaseManager target = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            return DeckBundle.read(target, bundle, parallelism);
+        }
+    }
+}
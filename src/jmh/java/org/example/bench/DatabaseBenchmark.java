@@ -0,0 +1,87 @@
+package org.example.bench;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.Card;
+import org.example.enteties.Deck;
+import org.example.generator.SyntheticDeckGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput and deck load latency of {@link DatabaseManager} against in-memory
+ * and file-backed SQLite, on databases pre-filled with synthetic decks of 1,000 cards each.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DatabaseBenchmark {
+    private static final int CARDS_PER_DECK = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int cardCount;
+
+    @Param({"memory", "file"})
+    private String storage;
+
+    private DatabaseManager db;
+    private Path file;
+    private int deckCount;
+    private long insertDeckId;
+    private long inserted;
+    private SplittableRandom random;
+    private SyntheticDeckGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String url = "jdbc:sqlite::memory:";
+        if (storage.equals("file")) {
+            file = Files.createTempFile("flashcards-bench", ".db");
+            url = "jdbc:sqlite:" + file;
+        }
+        db = DatabaseManager.open(url);
+        generator = new SyntheticDeckGenerator(1, CARDS_PER_DECK);
+        generator.populate(db, cardCount);
+        deckCount = (cardCount + CARDS_PER_DECK - 1) / CARDS_PER_DECK;
+        insertDeckId = db.createDeck("Inserts");
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        db.close();
+        if (file != null) {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Path.of(file + "-wal"));
+            Files.deleteIfExists(Path.of(file + "-shm"));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void addCard() {
+        // Numbered so that random questions never collide on the deck's unique content hash
+        db.addCard(insertDeckId, generator.question(random) + " #" + ++inserted, generator.answer(random));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Card> getCardsForDeck() {
+        return db.getCardsForDeck(1 + random.nextInt(deckCount));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Deck> getAllDecks() {
+        return db.getAllDecks();
+    }
+}
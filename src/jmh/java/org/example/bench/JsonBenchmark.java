@@ -0,0 +1,61 @@
+package org.example.bench;
+
+import org.example.enteties.Deck;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.json.JsonManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON round-trip throughput of {@link JsonManager}. Run with the GC profiler
+ * (the default in {@link BenchmarkRunner}) to get the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int cardCount;
+
+    private List<Deck> decks;
+    private Path saveFile;
+    private Path loadFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        decks = new SyntheticDeckGenerator(1, 1000).decks(cardCount);
+        saveFile = Files.createTempFile("flashcards-bench-save", ".json");
+        loadFile = Files.createTempFile("flashcards-bench-load", ".json");
+        JsonManager.saveDecksToJson(decks, loadFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saveFile);
+        Files.deleteIfExists(loadFile);
+    }
+
+    @Benchmark
+    public void saveDecksToJson() {
+        JsonManager.saveDecksToJson(decks, saveFile.toString());
+    }
+
+    @Benchmark
+    public List<Deck> loadDecksFromJson() {
+        return JsonManager.loadDecksFromJson(loadFile.toString());
+    }
+
+    @Benchmark
+    public List<Deck> roundTrip() {
+        JsonManager.saveDecksToJson(decks, saveFile.toString());
+        return JsonManager.loadDecksFromJson(saveFile.toString());
+    }
+}
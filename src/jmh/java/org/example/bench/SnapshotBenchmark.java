@@ -0,0 +1,61 @@
+package org.example.bench;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.Card;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.snapshot.DeckSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of opening a {@link DeckSnapshot} and of decoding single cards from it,
+ * for comparison with loading the same decks from JSON in {@link JsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int cardCount;
+
+    private Path file;
+    private DeckSnapshot snapshot;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("flashcards-bench", ".fcs");
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            new SyntheticDeckGenerator(1, 1000).populate(db, cardCount);
+            DeckSnapshot.write(db, file);
+        }
+        snapshot = DeckSnapshot.open(file);
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        snapshot.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        try (DeckSnapshot opened = DeckSnapshot.open(file)) {
+            return opened.getCardCount();
+        }
+    }
+
+    @Benchmark
+    public Card randomCard() {
+        return snapshot.getCard(random.nextInt(snapshot.getCardCount()));
+    }
+}
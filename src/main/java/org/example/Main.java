@@ -1,37 +1,96 @@
 package org.example;
 
+import org.example.analytics.AnalyticsReport;
+import org.example.cache.DeckCache;
+import org.example.cli.BatchCli;
+import org.example.csv.DelimitedFormat;
+import org.example.csv.DelimitedImporter;
 import org.example.db.DatabaseManager;
+import org.example.db.DeckSummary;
+import org.example.db.DuplicateCardException;
+import org.example.db.SearchHit;
+import org.example.db.ImportResult;
 import org.example.enteties.Card;
 import org.example.enteties.Deck;
+import org.example.enteties.ScheduledCard;
+import org.example.json.DeckBundle;
 import org.example.json.JsonManager;
+import org.example.metrics.MetricsReporter;
+import org.example.server.FlashcardServer;
+import org.example.snapshot.DeckSnapshot;
+import org.example.study.ReviewWriter;
+import org.example.study.Sm2Scheduler;
+import org.example.study.RandomSession;
+import org.example.study.StudyMode;
+import org.example.study.StudyQueue;
+import org.example.study.StudySession;
+import org.example.study.WeakCardsQueue;
+import org.example.study.matching.AnswerGrader;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 
 /**
  * Main entry point for the Flashcard Quiz application.
  * Provides console-based menu for managing decks, cards, studying, and JSON import/export.
+ * "server [port]" starts the HTTP API instead, and the commands of {@link BatchCli} run without prompts.
  */
 public class Main {
+    private static final int SEARCH_LIMIT = 20;
+    private static final int LIST_PAGE_SIZE = 20;
+    private static final int DEFAULT_PORT = 8080;
     private static final Scanner scanner = new Scanner(System.in);
-    private static final DatabaseManager db = DatabaseManager.getInstance();
+    private static final Clock clock = Clock.systemDefaultZone();
+    // Set up by main only for the menu and the server, so batch commands start without them
+    private static DatabaseManager db;
+    private static Sm2Scheduler scheduler;
+    private static DeckCache deckCache;
+    private static final AnswerGrader grader = new AnswerGrader();
+    private static final Random random = new Random();
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        MetricsReporter.startFromSystemProperties();
+        if (args.length > 0 && BatchCli.isCommand(args[0])) {
+            System.exit(BatchCli.run(args, System.in, System.out, System.err));
+        }
+        db = DatabaseManager.getInstance();
+        scheduler = new Sm2Scheduler(db, clock, new ReviewWriter(db).closeOnShutdown());
+        deckCache = new DeckCache(db).register();
+        if (args.length > 0 && args[0].equals("server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+            FlashcardServer server = new FlashcardServer(db, deckCache, port).closeOnShutdown().start();
+            System.out.println("Flashcard server listening on port " + server.getPort());
+            return;
+        }
         boolean running = true;
         while (running) {
             System.out.println("\nMain Menu:");
             System.out.println("1. Start Study");
             System.out.println("2. Manage Decks");
             System.out.println("3. Export to JSON");
-            System.out.println("4. Import from JSON");
-            System.out.println("5. Exit");
+            System.out.println("4. Import from File (JSON, CSV, TSV)");
+            System.out.println("5. Search Cards");
+            System.out.println("6. Export Snapshot");
+            System.out.println("7. Study from Snapshot");
+            System.out.println("8. Statistics");
+            System.out.println("9. Exit");
             int choice = getIntInput("Enter choice: ");
             switch (choice) {
                 case 1 -> startStudy();
                 case 2 -> manageDecks();
                 case 3 -> exportToJson();
-                case 4 -> importFromJson();
-                case 5 -> running = false;
+                case 4 -> importFromFile();
+                case 5 -> searchCards();
+                case 6 -> exportSnapshot();
+                case 7 -> studySnapshot();
+                case 8 -> new AnalyticsReport(db).print(System.out, LocalDate.now(ZoneOffset.UTC));
+                case 9 -> running = false;
                 default -> System.out.println("Invalid choice. Try again.");
             }
         }
@@ -91,7 +150,7 @@ public class Main {
                 case 4 -> {
                     Deck deck = selectDeck();
                     if (deck != null) {
-                        db.deleteDeck(deck.getId());
+                        deckCache.deleteDeck(deck.getId());
                         System.out.println("Deck deleted successfully.");
                     } else {
                         System.out.println("Deck not found.");
@@ -104,19 +163,19 @@ public class Main {
     }
 
     private static void listDecks() {
-        List<Deck> decks = db.getAllDecks();
+        List<DeckSummary> decks = db.getDeckSummaries();
         if (decks.isEmpty()) {
             System.out.println("No decks available.");
         } else {
             System.out.println("Available Decks:");
-            decks.forEach(deck -> System.out.println("ID: " + deck.getId() + ", Name: " + deck.getName()));
+            decks.forEach(deck -> System.out.println("ID: " + deck.getId() + ", Name: " + deck.getName() + ", Cards: " + deck.getCardCount()));
         }
     }
 
     private static Deck selectDeck() {
         listDecks();
         long id = getIntInput("Enter deck ID: ");
-        return db.getDeckById(id);
+        return deckCache.getDeckById(id);
     }
 
     private static void manageCards(Deck deck) {
@@ -134,8 +193,10 @@ public class Main {
                     String question = getNonEmptyInput("Enter question: ");
                     String answer = getNonEmptyInput("Enter answer: ");
                     try {
-                        db.addCard(deck.getId(), question, answer);
+                        deckCache.addCard(deck.getId(), question, answer);
                         System.out.println("Card added successfully.");
+                    } catch (DuplicateCardException e) {
+                        System.out.println("Card not added: " + e.getMessage() + ".");
                     } catch (Exception e) {
                         System.out.println("Error adding card: " + e.getMessage());
                     }
@@ -150,12 +211,26 @@ public class Main {
     }
 
     private static void listCards(Deck deck) {
-        List<Card> cards = db.getCardsForDeck(deck.getId());
-        if (cards.isEmpty()) {
+        List<Card> page = db.getCardsPage(deck.getId(), 0, LIST_PAGE_SIZE);
+        if (page.isEmpty()) {
             System.out.println("No cards in this deck.");
-        } else {
-            System.out.println("Cards in Deck:");
-            cards.forEach(card -> System.out.println("ID: " + card.getId() + ", Question: " + card.getQuestion() + ", Answer: " + card.getAnswer()));
+            return;
+        }
+        System.out.println("Cards in Deck:");
+        while (true) {
+            page.forEach(card -> System.out.println("ID: " + card.getId() + ", Question: " + card.getQuestion() + ", Answer: " + card.getAnswer()));
+            if (page.size() < LIST_PAGE_SIZE) {
+                return;
+            }
+            System.out.print("Press Enter for more cards, or type q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+            page = db.getCardsPage(deck.getId(), page.getLast().getId(), LIST_PAGE_SIZE);
+            if (page.isEmpty()) {
+                System.out.println("No more cards.");
+                return;
+            }
         }
     }
 
@@ -165,8 +240,10 @@ public class Main {
         String newQuestion = getNonEmptyInput("Enter new question: ");
         String newAnswer = getNonEmptyInput("Enter new answer: ");
         try {
-            db.updateCard(cardId, newQuestion, newAnswer);
+            deckCache.updateCard(cardId, newQuestion, newAnswer);
             System.out.println("Card updated successfully.");
+        } catch (DuplicateCardException e) {
+            System.out.println("Card not updated: " + e.getMessage() + ".");
         } catch (Exception e) {
             System.out.println("Error updating card: " + e.getMessage());
         }
@@ -176,67 +253,184 @@ public class Main {
         listCards(deck);
         long cardId = getIntInput("Enter card ID to delete: ");
         try {
-            db.deleteCard(cardId);
+            deckCache.deleteCard(cardId);
             System.out.println("Card deleted successfully.");
         } catch (Exception e) {
             System.out.println("Error deleting card: " + e.getMessage());
         }
     }
 
+    private static void searchCards() {
+        String query = getNonEmptyInput("Enter search text: ");
+        long deckId = getIntInput("Enter deck ID to search in (0 for all decks): ");
+        List<SearchHit> hits = db.searchCards(query, deckId > 0 ? deckId : null, SEARCH_LIMIT);
+        if (hits.isEmpty()) {
+            System.out.println("No matching cards.");
+        } else {
+            System.out.println("Matching Cards:");
+            hits.forEach(hit -> System.out.println("ID: " + hit.getCardId() + ", Deck ID: " + hit.getDeckId() + ", Question: " + hit.getQuestion() + ", Answer: " + hit.getAnswer()));
+        }
+    }
+
     private static void startStudy() {
-        Deck deck = selectDeck();
+        listDecks();
+        // Only the name is loaded here; the session fetches cards as it goes
+        Deck deck = db.getDeckById(getIntInput("Enter deck ID: "));
         if (deck == null) {
             System.out.println("Deck not found.");
             return;
         }
-        List<Card> cards = deck.getCards();
-        if (cards.isEmpty()) {
-            System.out.println("No cards in this deck to study.");
+        StudyMode[] modes = StudyMode.values();
+        for (int i = 0; i < modes.length; i++) {
+            System.out.println((i + 1) + ". " + modes[i].getLabel());
+        }
+        int mode = getIntInput("Enter study mode: ") - 1;
+        if (mode < 0 || mode >= modes.length) {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        StudySession session = switch (modes[mode]) {
+            case DUE -> new StudyQueue(db, deck.getId(), clock.millis(), deckCache.getCachedCardStore(deck.getId()));
+            case SHUFFLE -> RandomSession.shuffle(db, deck.getId(), random);
+            case SAMPLE -> {
+                int count = getIntInput("Enter number of cards: ");
+                yield count > 0 ? RandomSession.sample(db, deck.getId(), count, random) : null;
+            }
+            case WEAK_FIRST -> new WeakCardsQueue(db, deck.getId());
+        };
+        if (session == null) {
+            System.out.println("Invalid number of cards.");
+            return;
+        }
+        ScheduledCard card = session.next();
+        if (card == null) {
+            System.out.println(modes[mode] == StudyMode.DUE ? "No cards due in this deck." : "No cards in this deck.");
             return;
         }
         System.out.println("\nStudy Mode for Deck: " + deck.getName());
-        for (Card card : cards) {
+        int answered = 0;
+        int correct = 0;
+        while (card != null) {
             System.out.println("Question: " + card.getQuestion());
             String userAnswer = getNonEmptyInput("Your answer is: ");
-            if (userAnswer.equalsIgnoreCase(card.getAnswer())) {
+            if (grader.isCorrect(card.getCardId(), card.getAnswer(), userAnswer)) {
                 System.out.println("Correct!");
+                scheduler.review(card, Sm2Scheduler.GRADE_CORRECT);
+                correct++;
             } else {
                 System.out.println("Incorrect. Correct answer: " + card.getAnswer());
+                scheduler.review(card, Sm2Scheduler.GRADE_INCORRECT);
             }
+            answered++;
             System.out.println();
+            card = session.next();
+        }
+        System.out.println("Study session completed: " + correct + " of " + answered + " correct.");
+    }
+
+    private static void exportSnapshot() {
+        String filePath = getNonEmptyInput("Enter file path for snapshot (for example: decks.fcs): ");
+        try {
+            DeckSnapshot.write(db, Path.of(filePath));
+            System.out.println("Snapshot written.");
+        } catch (IOException e) {
+            System.out.println("Snapshot export failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Practice session over a snapshot file: answers are graded but nothing is saved.
+     */
+    private static void studySnapshot() {
+        String filePath = getNonEmptyInput("Enter snapshot file path: ");
+        try (DeckSnapshot snapshot = DeckSnapshot.open(Path.of(filePath))) {
+            List<DeckSummary> decks = snapshot.getDecks();
+            for (int i = 0; i < decks.size(); i++) {
+                System.out.println((i + 1) + ". " + decks.get(i).getName() + " (" + decks.get(i).getCardCount() + " cards)");
+            }
+            int index = getIntInput("Enter deck number: ") - 1;
+            if (index < 0 || index >= decks.size()) {
+                System.out.println("Deck not found.");
+                return;
+            }
+            int correct = 0;
+            List<Card> cards = snapshot.getCards(index);
+            for (Card card : cards) {
+                System.out.println("Question: " + card.getQuestion());
+                String userAnswer = getNonEmptyInput("Your answer is: ");
+                if (grader.isCorrect(card.getId(), card.getAnswer(), userAnswer)) {
+                    System.out.println("Correct!");
+                    correct++;
+                } else {
+                    System.out.println("Incorrect. Correct answer: " + card.getAnswer());
+                }
+                System.out.println();
+            }
+            System.out.println("Practice completed: " + correct + " of " + cards.size() + " correct.");
+        } catch (IOException e) {
+            System.out.println("Cannot open snapshot: " + e.getMessage());
         }
-        System.out.println("Study session completed.");
     }
 
     private static void exportToJson() {
         String filePath = getNonEmptyInput("Enter file path for export (for example: decks.json): ");
-        List<Deck> decks = db.getAllDecks();
-        JsonManager.saveDecksToJson(decks, filePath);
-        System.out.println("Export completed.");
+        System.out.print("Export only changes after sequence number (leave empty for a full export, current is "
+                + db.getChangeSequence() + "): ");
+        String since = scanner.nextLine().trim();
+        if (!since.isEmpty()) {
+            long until;
+            try {
+                until = JsonManager.exportDelta(db, Long.parseLong(since), filePath);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid sequence number.");
+                return;
+            }
+            System.out.println(until < 0 ? "Export failed." : "Exported changes up to sequence " + until + ".");
+            return;
+        }
+        if (JsonManager.exportDecksStreaming(db, filePath)) {
+            System.out.println("Export completed.");
+        } else {
+            System.out.println("Export failed.");
+        }
     }
 
-    private static void importFromJson() {
-        String filePath = getNonEmptyInput("Enter file path for import (for example: decks.json): ");
-        List<Deck> importedDecks = JsonManager.loadDecksFromJson(filePath);
-        if (importedDecks == null) {
+    private static void importFromFile() {
+        String filePath = getNonEmptyInput("Enter file path for import (for example: decks.json, cards.csv or a bundle directory): ");
+        ImportResult result;
+        if (DeckBundle.isBundle(Path.of(filePath))) {
+            try {
+                result = DeckBundle.read(db, Path.of(filePath));
+            } catch (IOException e) {
+                System.out.println("Error reading " + filePath + ": " + e.getMessage());
+                result = null;
+            }
+        } else if (DelimitedFormat.isDelimited(filePath)) {
+            System.out.print("Enter deck for rows without a deck column (leave empty to reject them): ");
+            String defaultDeck = scanner.nextLine().trim();
+            try {
+                result = new DelimitedImporter(db, DelimitedFormat.forFile(filePath), defaultDeck).importFile(Path.of(filePath));
+            } catch (IOException e) {
+                System.out.println("Error reading " + filePath + ": " + e.getMessage());
+                result = null;
+            }
+        } else {
+            result = JsonManager.importDecksStreaming(db, filePath);
+        }
+        deckCache.invalidateAll();
+        if (result == null) {
             System.out.println("Import failed.");
             return;
         }
-        for (Deck importedDeck : importedDecks) {
-            Deck existing = db.getDeckByName(importedDeck.getName());
-            long deckId;
-            try {
-                if (existing == null) {
-                    deckId = db.createDeck(importedDeck.getName());
-                } else {
-                    deckId = existing.getId();
-                }
-                for (Card card : importedDeck.getCards()) {
-                    db.addCard(deckId, card.getQuestion(), card.getAnswer());
-                }
-            } catch (Exception e) {
-                System.out.println("Error importing deck " + importedDeck.getName() + ": " + e.getMessage());
-            }
+        result.getFailures().forEach((name, message) -> System.out.println("Error importing deck " + name + ": " + message));
+        result.getBadRows().forEach((line, message) -> System.out.println("Line " + line + ": " + message));
+        if (result.getBadRowCount() > result.getBadRows().size()) {
+            System.out.println("... " + (result.getBadRowCount() - result.getBadRows().size()) + " more bad rows.");
+        }
+        System.out.println("Imported " + result.getImportedCards() + " cards into " + result.getImportedDecks() + " decks: "
+                + result.getInsertedCards() + " inserted, " + result.getUpdatedCards() + " updated, " + result.getSkippedCards() + " skipped.");
+        if (result.getDeletedDecks() + result.getDeletedCards() > 0) {
+            System.out.println("Deleted " + result.getDeletedDecks() + " decks and " + result.getDeletedCards() + " cards.");
         }
         System.out.println("Import completed.");
     }
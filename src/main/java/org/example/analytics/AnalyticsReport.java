@@ -0,0 +1,93 @@
+package org.example.analytics;
+
+import org.example.db.CardStats;
+import org.example.db.DailyStats;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckStats;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Console report of learner progress: accuracy per deck, the hardest cards and daily review
+ * volume. Everything comes from the rollup tables that {@link DatabaseManager#saveReviews}
+ * maintains, so the cost depends on the number of decks, reviewed cards and days shown,
+ * not on how many answers were ever given.
+ */
+public final class AnalyticsReport {
+    public static final int DEFAULT_DAYS = 14;
+    public static final int DEFAULT_HARDEST = 10;
+    /**
+     * Cards with fewer reviews are left out of the hardest list, where one miss would put them on top.
+     */
+    public static final int MIN_REVIEWS = 3;
+    private static final int BAR_WIDTH = 40;
+
+    private final DatabaseManager db;
+    private final int days;
+    private final int hardest;
+
+    public AnalyticsReport(DatabaseManager db) {
+        this(db, DEFAULT_DAYS, DEFAULT_HARDEST);
+    }
+
+    public AnalyticsReport(DatabaseManager db, int days, int hardest) {
+        if (days <= 0 || hardest <= 0) {
+            throw new IllegalArgumentException("Days and card count must be positive");
+        }
+        this.db = db;
+        this.days = days;
+        this.hardest = hardest;
+    }
+
+    /**
+     * Prints the report for the days up to and including today, a UTC date.
+     */
+    public void print(PrintStream out, LocalDate today) {
+        List<DeckStats> decks = db.getDeckStats();
+        Map<Long, String> deckNames = new HashMap<>();
+        long reviews = 0;
+        long correct = 0;
+        out.println("Accuracy per deck:");
+        for (DeckStats deck : decks) {
+            deckNames.put(deck.getDeckId(), deck.getName());
+            reviews += deck.getReviews();
+            correct += deck.getCorrect();
+            if (deck.getReviews() > 0) {
+                out.printf(Locale.ROOT, "  %-30s %6d reviews  %5.1f%%%n", deck.getName(), deck.getReviews(), deck.getAccuracy() * 100);
+            }
+        }
+        if (reviews == 0) {
+            out.println("  No reviews yet.");
+            return;
+        }
+        out.printf(Locale.ROOT, "  %-30s %6d reviews  %5.1f%%%n", "All decks", reviews, 100.0 * correct / reviews);
+
+        out.println("\nHardest cards (at least " + MIN_REVIEWS + " reviews):");
+        List<CardStats> cards = db.getHardestCards(null, MIN_REVIEWS, hardest);
+        if (cards.isEmpty()) {
+            out.println("  None yet.");
+        }
+        for (CardStats card : cards) {
+            out.printf(Locale.ROOT, "  %5.1f%% of %-4d %s [%s]%n", card.getAccuracy() * 100, card.getReviews(),
+                    card.getQuestion(), deckNames.getOrDefault(card.getDeckId(), "?"));
+        }
+
+        long toDay = today.toEpochDay();
+        long fromDay = toDay - days + 1;
+        List<DailyStats> daily = db.getDailyStats(null, fromDay, toDay);
+        long max = daily.stream().mapToLong(DailyStats::getReviews).max().orElse(0);
+        out.println("\nReviews over the last " + days + " days:");
+        int next = 0;
+        for (long day = fromDay; day <= toDay; day++) {
+            DailyStats stats = next < daily.size() && daily.get(next).getDay() == day ? daily.get(next++) : null;
+            long count = stats != null ? stats.getReviews() : 0;
+            int bar = max == 0 ? 0 : (int) Math.ceil((double) count * BAR_WIDTH / max);
+            out.printf(Locale.ROOT, "  %s %6d %s%n", LocalDate.ofEpochDay(day), count, "#".repeat(bar));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.cache;
+
+import org.example.enteties.Card;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only, column-oriented store of one deck's cards. Instead of a Card object and two Strings
+ * per card it keeps a long[] of ids and the question and answer text as UTF-8 in two byte arenas,
+ * addressed by int[] offset columns. Identical answers ("4", "1939", "True") are stored once and
+ * shared through an index column. Text is decoded only when a card is asked for, so a deck costs
+ * little more than its UTF-8 size plus 16 bytes per card. Ids must be added in ascending order,
+ * which lets {@link #indexOf(long)} binary search them. Safe for concurrent readers.
+ */
+public final class CardStore {
+    private static final CardStore EMPTY = new Builder().build();
+
+    private final long[] ids;
+    private final int[] questionOffsets;
+    private final byte[] questions;
+    private final int[] answerRefs;
+    private final int[] answerOffsets;
+    private final byte[] answers;
+
+    private CardStore(long[] ids, int[] questionOffsets, byte[] questions, int[] answerRefs, int[] answerOffsets, byte[] answers) {
+        this.ids = ids;
+        this.questionOffsets = questionOffsets;
+        this.questions = questions;
+        this.answerRefs = answerRefs;
+        this.answerOffsets = answerOffsets;
+        this.answers = answers;
+    }
+
+    public static CardStore empty() {
+        return EMPTY;
+    }
+
+    public static CardStore of(List<Card> cards) {
+        Builder builder = new Builder();
+        cards.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public String getQuestion(int index) {
+        return decode(questions, questionOffsets, index);
+    }
+
+    public String getAnswer(int index) {
+        return decode(answers, answerOffsets, answerRefs[index]);
+    }
+
+    public Card getCard(int index) {
+        Card card = new Card();
+        card.setId(ids[index]);
+        card.setQuestion(getQuestion(index));
+        card.setAnswer(getAnswer(index));
+        return card;
+    }
+
+    /**
+     * Position of the card with the given id, or -1 if the deck has no such card.
+     */
+    public int indexOf(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Number of distinct answers, which is below {@link #size()} when answers repeat.
+     */
+    public int getDistinctAnswers() {
+        return answerOffsets.length - 1;
+    }
+
+    /**
+     * Approximate heap taken by the columns and arenas, used as the cache weight.
+     */
+    public long getByteSize() {
+        return 8L * ids.length + 4L * (questionOffsets.length + answerRefs.length + answerOffsets.length)
+                + questions.length + answers.length;
+    }
+
+    /**
+     * Read-only list view that decodes a fresh Card on every get.
+     */
+    public List<Card> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Card get(int index) {
+                return getCard(index);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    private static String decode(byte[] arena, int[] offsets, int index) {
+        int start = offsets[index];
+        return new String(arena, start, offsets[index + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends cards in id order and packs them into a store. The answer dictionary only lives
+     * while building.
+     */
+    public static final class Builder {
+        private long[] ids = new long[16];
+        private int[] questionOffsets = new int[17];
+        private int[] answerRefs = new int[16];
+        private int[] answerOffsets = new int[17];
+        private final Arena questions = new Arena();
+        private final Arena answers = new Arena();
+        private final Map<String, Integer> answerIndex = new HashMap<>();
+        private int size;
+        private int distinctAnswers;
+
+        public Builder add(Card card) {
+            return add(card.getId(), card.getQuestion(), card.getAnswer());
+        }
+
+        public Builder add(long id, String question, String answer) {
+            if (size > 0 && id <= ids[size - 1]) {
+                throw new IllegalArgumentException("Card ids must be added in ascending order");
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                questionOffsets = Arrays.copyOf(questionOffsets, capacity + 1);
+                answerRefs = Arrays.copyOf(answerRefs, capacity);
+            }
+            ids[size] = id;
+            questionOffsets[size + 1] = questions.append(question);
+            Integer ref = answerIndex.get(answer);
+            if (ref == null) {
+                if (distinctAnswers + 1 == answerOffsets.length) {
+                    answerOffsets = Arrays.copyOf(answerOffsets, answerOffsets.length * 2);
+                }
+                ref = distinctAnswers++;
+                answerOffsets[distinctAnswers] = answers.append(answer);
+                answerIndex.put(answer, ref);
+            }
+            answerRefs[size++] = ref;
+            return this;
+        }
+
+        public CardStore build() {
+            return new CardStore(Arrays.copyOf(ids, size), Arrays.copyOf(questionOffsets, size + 1), questions.toArray(),
+                    Arrays.copyOf(answerRefs, size), Arrays.copyOf(answerOffsets, distinctAnswers + 1), answers.toArray());
+        }
+    }
+
+    /**
+     * Growable UTF-8 byte buffer; append returns the end offset of the appended text.
+     */
+    private static final class Arena {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        int append(String text) {
+            byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+            if (encoded.length > Integer.MAX_VALUE - 8 - length) {
+                throw new IllegalStateException("Card text of one deck exceeds 2 GiB");
+            }
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(2L * bytes.length, length + encoded.length)));
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+            return length;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.example.cache;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.Card;
+import org.example.enteties.Deck;
+import org.example.metrics.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Read-through cache of fully loaded decks in front of {@link DatabaseManager}, keyed by deck id.
+ * Each deck's cards are streamed from the database straight into a compact {@link CardStore},
+ * and the cached Deck's card list is a read-only view that decodes cards on access, so large
+ * decks cost roughly their UTF-8 size. Bounded both by number of decks and by total weight
+ * (the stores' byte size), evicting least recently used decks first. Writes made through the
+ * cache invalidate exactly the affected deck; a card id is looked up in the cached stores' id
+ * columns, so editing a card of an uncached deck costs nothing.
+ */
+public class DeckCache implements DeckCacheMBean {
+    public static final int DEFAULT_MAX_DECKS = 1024;
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final DatabaseManager db;
+    private final int maxDecks;
+    private final long maxWeight;
+    private final LinkedHashMap<Long, Entry> decks = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // Bumped by every invalidation so that a load racing with a write is not cached
+    private long epoch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry(Deck deck, CardStore store) {
+    }
+
+    public DeckCache(DatabaseManager db) {
+        this(db, DEFAULT_MAX_DECKS, DEFAULT_MAX_WEIGHT);
+    }
+
+    public DeckCache(DatabaseManager db, int maxDecks, long maxWeight) {
+        this.db = db;
+        this.maxDecks = maxDecks;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the deck with all its cards, loading it from the database only on a miss.
+     */
+    public Deck getDeckById(long id) {
+        Entry entry = getEntry(id);
+        return entry != null ? entry.deck() : null;
+    }
+
+    /**
+     * Returns the compact cards of the deck, loading it on a miss, or null if the deck does not exist.
+     */
+    public CardStore getCardStore(long id) {
+        Entry entry = getEntry(id);
+        return entry != null ? entry.store() : null;
+    }
+
+    /**
+     * Returns the deck's compact cards only if the deck is cached already, without loading it
+     * or counting a hit or miss.
+     */
+    public synchronized CardStore getCachedCardStore(long id) {
+        Entry entry = decks.get(id);
+        return entry != null ? entry.store() : null;
+    }
+
+    private Entry getEntry(long id) {
+        long loadEpoch;
+        synchronized (this) {
+            Entry entry = decks.get(id);
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+            loadEpoch = epoch;
+        }
+        misses.increment();
+        Entry loaded = Metrics.time("cache.loadDeck", () -> load(id));
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (epoch == loadEpoch && !decks.containsKey(id)) {
+                put(id, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private Entry load(long id) {
+        Deck found = db.getDeckById(id);
+        if (found == null) {
+            return null;
+        }
+        CardStore.Builder builder = new CardStore.Builder();
+        try (Stream<Card> cards = db.streamCards(id)) {
+            cards.forEach(builder::add);
+        }
+        CardStore store = builder.build();
+        Deck deck = new Deck();
+        deck.setId(found.getId());
+        deck.setName(found.getName());
+        deck.setCards(store.asList());
+        return new Entry(deck, store);
+    }
+
+    public void addCard(long deckId, String question, String answer) {
+        db.addCard(deckId, question, answer);
+        invalidateDeck(deckId);
+    }
+
+    public void updateCard(long cardId, String question, String answer) {
+        db.updateCard(cardId, question, answer);
+        invalidateCard(cardId);
+    }
+
+    public void deleteCard(long cardId) {
+        db.deleteCard(cardId);
+        invalidateCard(cardId);
+    }
+
+    public void deleteDeck(long deckId) {
+        db.deleteDeck(deckId);
+        invalidateDeck(deckId);
+    }
+
+    public synchronized void invalidateDeck(long deckId) {
+        epoch++;
+        if (remove(deckId)) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized void invalidateCard(long cardId) {
+        epoch++;
+        for (Iterator<Entry> entries = decks.values().iterator(); entries.hasNext(); ) {
+            Entry entry = entries.next();
+            if (entry.store().indexOf(cardId) >= 0) {
+                entries.remove();
+                weight -= entry.store().getByteSize();
+                invalidations.increment();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        epoch++;
+        invalidations.add(decks.size());
+        decks.clear();
+        weight = 0;
+    }
+
+    private void put(long id, Entry entry) {
+        decks.put(id, entry);
+        weight += entry.store().getByteSize();
+        Iterator<Map.Entry<Long, Entry>> eldest = decks.entrySet().iterator();
+        while ((decks.size() > maxDecks || weight > maxWeight) && eldest.hasNext()) {
+            Map.Entry<Long, Entry> victim = eldest.next();
+            eldest.remove();
+            weight -= victim.getValue().store().getByteSize();
+            evictions.increment();
+        }
+    }
+
+    private boolean remove(long deckId) {
+        Entry entry = decks.remove(deckId);
+        if (entry == null) {
+            return false;
+        }
+        weight -= entry.store().getByteSize();
+        return true;
+    }
+
+    /**
+     * Publishes the cache statistics over JMX.
+     */
+    public DeckCache register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(Metrics.JMX_DOMAIN + ":type=Cache,name=decks");
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Error registering cache MBean: " + e.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return decks.size();
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+}
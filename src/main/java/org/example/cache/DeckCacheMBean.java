@@ -0,0 +1,20 @@
+package org.example.cache;
+
+/**
+ * JMX view of the deck cache, published as org.example.flashcards:type=Cache,name=decks.
+ */
+public interface DeckCacheMBean {
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getInvalidations();
+
+    int getSize();
+
+    long getWeight();
+
+    void invalidateAll();
+}
@@ -0,0 +1,591 @@
+package org.example.cli;
+
+import org.example.analytics.AnalyticsReport;
+import org.example.csv.DelimitedFormat;
+import org.example.csv.DelimitedImporter;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.json.BundleManifest;
+import org.example.json.DeckBundle;
+import org.example.json.JsonManager;
+import org.example.loadtest.LoadReport;
+import org.example.loadtest.LoadTest;
+import org.example.snapshot.DeckSnapshot;
+import org.example.study.RandomSession;
+import org.example.study.StudyQueue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Argument-driven subcommands for scripts and cron jobs, run instead of the interactive menu:
+ * import, export, stats, report, vacuum, bench, loadtest and help. Nothing is prompted for. Data goes to stdout
+ * or comes from stdin when the file argument is "-" or missing, so commands compose in pipelines;
+ * progress, throughput and errors go to stderr. The database is opened only by commands that
+ * need it, with a single reader connection; bench uses a private in-memory database and loadtest
+ * a temporary database file unless --db is given.
+ */
+public final class BatchCli {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+    /**
+     * The import finished, but some decks failed or some rows were rejected.
+     */
+    public static final int EXIT_PARTIAL = 3;
+
+    private static final Set<String> COMMANDS = Set.of("import", "export", "stats", "report", "vacuum", "bench", "loadtest", "help");
+    private static final Set<String> FLAGS = Set.of("quiet");
+    private static final long PROGRESS_INTERVAL_SECONDS = 2;
+    private static final String USAGE = """
+            Usage: flashcards <command> [options]
+              import [--db URL] [--format json|csv|tsv|snapshot|bundle] [--deck NAME] [FILE|DIR|-]
+                     Imports decks; the format defaults to the file extension (bundle for a directory),
+                     or json for stdin.
+              export [--db URL] [--format json|snapshot|bundle] [--since SEQ] [FILE|DIR|-]
+                     Exports all decks, or only the changes after SEQ as a JSON delta. A bundle is a
+                     directory with one gzip-compressed entry per deck, written in parallel.
+              stats  [--db URL]             Prints schema version, change sequence, deck and card counts.
+              report [--db URL] [--days N]  Prints accuracy per deck, the hardest cards and daily reviews.
+              vacuum [--db URL] [--prune-tombstones SEQ]
+                     Compacts the database file, optionally dropping tombstones up to SEQ.
+              bench  [--cards N]            Measures import, export and study on an in-memory database.
+              loadtest [--db FILE] [--learners N] [--seconds N] [--cards N] [--deck-size N]
+                       [--mix SELECT,STUDY,EDIT,IMPORT] [--skew X] [--readers N]
+                     Runs N concurrent learners on virtual threads against a file database, filled
+                     with synthetic decks if empty (default: a temporary file), and prints throughput,
+                     p50/p95/p99 latency, SQLITE_BUSY errors and lock waits. It modifies the database.
+              help                          Prints this message.
+            --db takes a JDBC url or a file path (default flashcards.db); --quiet hides progress.
+            Exit codes: 0 ok, 1 failure, 2 usage error, 3 import finished with rejected decks or rows.""";
+
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> arguments = new ArrayList<>();
+
+    private BatchCli(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static boolean isCommand(String arg) {
+        return COMMANDS.contains(arg);
+    }
+
+    /**
+     * Runs the command in args[0] and returns the process exit code.
+     */
+    public static int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        BatchCli cli = new BatchCli(in, out, err);
+        try {
+            if (args.length == 0 || !isCommand(args[0])) {
+                throw new UsageException(args.length == 0 ? "Missing command" : "Unknown command " + args[0]);
+            }
+            cli.parse(args);
+            return switch (args[0]) {
+                case "import" -> cli.importDecks();
+                case "export" -> cli.exportDecks();
+                case "stats" -> cli.stats();
+                case "report" -> cli.report();
+                case "vacuum" -> cli.vacuum();
+                case "bench" -> cli.bench();
+                case "loadtest" -> cli.loadTest();
+                default -> {
+                    out.println(USAGE);
+                    yield EXIT_OK;
+                }
+            };
+        } catch (UsageException e) {
+            err.println("error: " + e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (Exception e) {
+            err.println("error: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private void parse(String[] args) throws UsageException {
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                arguments.add(arg);
+            } else if (FLAGS.contains(arg.substring(2))) {
+                options.put(arg.substring(2), "true");
+            } else if (i + 1 < args.length) {
+                options.put(arg.substring(2), args[++i]);
+            } else {
+                throw new UsageException("Option " + arg + " needs a value");
+            }
+        }
+        if (arguments.size() > 1) {
+            throw new UsageException("Unexpected argument " + arguments.get(1));
+        }
+    }
+
+    private int importDecks() throws Exception {
+        allowOptions("db", "format", "deck", "quiet");
+        String file = file();
+        String format = options.getOrDefault("format", file == null ? "json" : formatOf(file));
+        long start = System.nanoTime();
+        ImportResult result;
+        try (DatabaseManager db = openDatabase()) {
+            if (format.equals("bundle")) {
+                if (file == null) {
+                    throw new UsageException("Bundles are imported from a directory, not stdin");
+                }
+                result = DeckBundle.read(db, Path.of(file));
+            } else if (format.equals("snapshot")) {
+                if (file == null) {
+                    throw new UsageException("Snapshots are imported from a file, not stdin");
+                }
+                try (DeckSnapshot snapshot = DeckSnapshot.open(Path.of(file))) {
+                    result = snapshot.importInto(db);
+                }
+            } else {
+                try (CountingInputStream source = new CountingInputStream(file == null ? in : Files.newInputStream(Path.of(file)))) {
+                    Progress progress = progress("Read", source.count);
+                    try {
+                        result = switch (format) {
+                            case "json" -> JsonManager.importDecksStreaming(db,
+                                    new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8)));
+                            case "csv", "tsv" -> new DelimitedImporter(db, DelimitedFormat.valueOf(format.toUpperCase(Locale.ROOT)),
+                                    options.get("deck")).importStream(source);
+                            default -> throw new UsageException("Unknown import format " + format);
+                        };
+                    } finally {
+                        progress.close();
+                    }
+                }
+            }
+        }
+        result.getFailures().forEach((name, message) -> err.println("deck " + name + ": " + message));
+        result.getBadRows().forEach((line, message) -> err.println("line " + line + ": " + message));
+        double seconds = seconds(start);
+        report(String.format(Locale.ROOT, "Imported %d cards into %d decks (%d inserted, %d updated, %d skipped, %d deleted) in %.2f s, %.0f cards/s",
+                result.getImportedCards(), result.getImportedDecks(), result.getInsertedCards(), result.getUpdatedCards(),
+                result.getSkippedCards(), result.getDeletedCards(), seconds, result.getImportedCards() / seconds));
+        boolean partial = !result.getFailures().isEmpty() || result.getBadRowCount() > 0;
+        if (partial) {
+            err.println(result.getFailures().size() + " decks failed, " + result.getBadRowCount() + " rows rejected");
+        }
+        return partial ? EXIT_PARTIAL : EXIT_OK;
+    }
+
+    private int exportDecks() throws Exception {
+        allowOptions("db", "format", "since", "quiet");
+        String file = file();
+        String inferred = file == null ? "json" : formatOf(file);
+        String format = options.getOrDefault("format", inferred.equals("snapshot") || inferred.equals("bundle") ? inferred : "json");
+        Long since = options.containsKey("since") ? longOption("since") : null;
+        long start = System.nanoTime();
+        // A bundle reads one deck per thread at a time, so it gets a reader per thread
+        try (DatabaseManager db = openDatabase(format.equals("bundle") ? Runtime.getRuntime().availableProcessors() : 1)) {
+            if (format.equals("bundle")) {
+                if (file == null || since != null) {
+                    throw new UsageException("Bundles are written to a directory and always hold every deck");
+                }
+                BundleManifest manifest = DeckBundle.write(db, Path.of(file));
+                report(String.format(Locale.ROOT, "Wrote %d decks, %d bytes compressed from %d",
+                        manifest.getDecks().size(), manifest.getTotalBytes(), manifest.getTotalRawBytes()));
+                reportBytes("Wrote", manifest.getTotalBytes(), start);
+                return EXIT_OK;
+            }
+            if (format.equals("snapshot")) {
+                if (file == null || since != null) {
+                    throw new UsageException("Snapshots are written to a file and always hold every deck");
+                }
+                DeckSnapshot.write(db, Path.of(file));
+                reportBytes("Wrote", Files.size(Path.of(file)), start);
+                return EXIT_OK;
+            }
+            if (!format.equals("json")) {
+                throw new UsageException("Unknown export format " + format);
+            }
+            // stdout stays open for the caller
+            try (CountingOutputStream sink = file == null ? new CountingOutputStream(out, false)
+                    : new CountingOutputStream(Files.newOutputStream(Path.of(file)), true);
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8))) {
+                Progress progress = progress("Wrote", sink.count);
+                try {
+                    if (since != null) {
+                        long until = JsonManager.exportDelta(db, since, writer);
+                        report("Changes up to sequence " + until);
+                    } else {
+                        JsonManager.exportDecksStreaming(db, writer);
+                    }
+                    writer.flush();
+                } finally {
+                    progress.close();
+                }
+                reportBytes("Wrote", sink.count.get(), start);
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private int stats() throws Exception {
+        allowOptions("db");
+        try (DatabaseManager db = openDatabase()) {
+            List<DeckSummary> decks = db.getDeckSummaries();
+            out.println("schema_version\t" + db.getSchemaVersion());
+            out.println("change_sequence\t" + db.getChangeSequence());
+            out.println("decks\t" + decks.size());
+            out.println("cards\t" + decks.stream().mapToLong(DeckSummary::getCardCount).sum());
+            for (DeckSummary deck : decks) {
+                out.println("deck\t" + deck.getId() + "\t" + deck.getName() + "\t" + deck.getCardCount());
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private int report() throws Exception {
+        allowOptions("db", "days");
+        long days = longOption("days", AnalyticsReport.DEFAULT_DAYS);
+        if (days <= 0 || days > Integer.MAX_VALUE) {
+            throw new UsageException("--days must be positive");
+        }
+        try (DatabaseManager db = openDatabase()) {
+            new AnalyticsReport(db, (int) days, AnalyticsReport.DEFAULT_HARDEST).print(out, LocalDate.now(ZoneOffset.UTC));
+        }
+        return EXIT_OK;
+    }
+
+    private int vacuum() throws Exception {
+        allowOptions("db", "prune-tombstones", "quiet");
+        Path file = databaseFile();
+        long before = file != null && Files.exists(file) ? Files.size(file) : -1;
+        long start = System.nanoTime();
+        try (DatabaseManager db = openDatabase()) {
+            if (options.containsKey("prune-tombstones")) {
+                report("Pruned " + db.pruneTombstones(longOption("prune-tombstones")) + " tombstones");
+            }
+            db.vacuum();
+        }
+        if (before >= 0) {
+            report(String.format(Locale.ROOT, "Vacuumed %s in %.2f s: %d -> %d bytes", file, seconds(start), before, Files.size(file)));
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Quick end-to-end throughput check that never touches the real database: results go to
+     * stdout as tab-separated lines of step, items, seconds and items per second.
+     */
+    private int bench() throws Exception {
+        allowOptions("cards");
+        int cards = (int) longOption("cards", 100_000);
+        if (cards <= 0) {
+            throw new UsageException("--cards must be positive");
+        }
+        try (DatabaseManager source = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            long start = System.nanoTime();
+            new SyntheticDeckGenerator(42, 1000).populate(source, cards);
+            benchLine("populate", cards, start);
+
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            start = System.nanoTime();
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(json, StandardCharsets.UTF_8))) {
+                JsonManager.exportDecksStreaming(source, writer);
+            }
+            benchLine("export.json", cards, start);
+
+            try (DatabaseManager target = DatabaseManager.open("jdbc:sqlite::memory:")) {
+                start = System.nanoTime();
+                ImportResult result = JsonManager.importDecksStreaming(target,
+                        new InputStreamReader(new ByteArrayInputStream(json.toByteArray()), StandardCharsets.UTF_8));
+                benchLine("import.json", result.getImportedCards(), start);
+            }
+
+            long deckId = source.getDeckByName(SyntheticDeckGenerator.deckName(1)).getId();
+            start = System.nanoTime();
+            new StudyQueue(source, deckId, System.currentTimeMillis()).next();
+            benchLine("study.firstDue", 1, start);
+            start = System.nanoTime();
+            RandomSession.sample(source, deckId, 20, new Random(42)).next();
+            benchLine("study.firstSampled", 1, start);
+        }
+        return EXIT_OK;
+    }
+
+    private int loadTest() throws Exception {
+        allowOptions("db", "learners", "seconds", "cards", "deck-size", "mix", "skew", "readers", "quiet");
+        LoadTest.Config config = new LoadTest.Config();
+        config.setLearners((int) positiveOption("learners", config.getLearners()));
+        config.setDurationMillis(TimeUnit.SECONDS.toMillis(positiveOption("seconds", TimeUnit.MILLISECONDS.toSeconds(config.getDurationMillis()))));
+        config.setCards((int) positiveOption("cards", config.getCards()));
+        config.setCardsPerDeck((int) positiveOption("deck-size", config.getCardsPerDeck()));
+        int readers = (int) positiveOption("readers", DatabaseManager.DEFAULT_READERS);
+        if (options.containsKey("mix")) {
+            config.setMix(parseMix(options.get("mix")));
+        }
+        if (options.containsKey("skew")) {
+            try {
+                config.setSkew(Double.parseDouble(options.get("skew")));
+            } catch (NumberFormatException e) {
+                throw new UsageException("--skew needs a number");
+            }
+        }
+        Path tempDir = null;
+        String url;
+        if (options.containsKey("db")) {
+            Path file = databaseFile();
+            if (file == null) {
+                throw new UsageException("--db must be a database file");
+            }
+            url = "jdbc:sqlite:" + file;
+        } else {
+            tempDir = Files.createTempDirectory("flashcards-loadtest");
+            url = "jdbc:sqlite:" + tempDir.resolve("loadtest.db");
+        }
+        try (DatabaseManager db = DatabaseManager.open(url, readers)) {
+            LoadTest test;
+            try {
+                test = new LoadTest(db, config);
+            } catch (IllegalArgumentException e) {
+                throw new UsageException(e.getMessage());
+            }
+            long populated = test.prepare();
+            if (populated > 0) {
+                report(String.format(Locale.ROOT, "Populated %d cards in %.2f s", config.getCards(), populated / 1e9));
+            }
+            report("Running " + config.getLearners() + " learners for " + TimeUnit.MILLISECONDS.toSeconds(config.getDurationMillis()) + " s");
+            LoadReport result = test.run();
+            result.print(out);
+            return result.getTotalErrors() > 0 ? EXIT_PARTIAL : EXIT_OK;
+        } finally {
+            if (tempDir != null) {
+                try (Stream<Path> files = Files.walk(tempDir)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] parseMix(String value) throws UsageException {
+        String[] parts = value.split(",");
+        if (parts.length != LoadTest.Workload.values().length) {
+            throw new UsageException("--mix needs " + LoadTest.Workload.values().length + " comma-separated weights");
+        }
+        int[] mix = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                mix[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new UsageException("--mix needs numbers");
+            }
+        }
+        return mix;
+    }
+
+    private void benchLine(String step, long items, long start) {
+        double seconds = seconds(start);
+        out.println(String.format(Locale.ROOT, "%s\t%d\t%.4f\t%.0f", step, items, seconds, items / seconds));
+    }
+
+    private DatabaseManager openDatabase() {
+        return openDatabase(1);
+    }
+
+    private DatabaseManager openDatabase(int readers) {
+        String db = options.getOrDefault("db", DatabaseManager.DEFAULT_URL);
+        return DatabaseManager.open(db.startsWith("jdbc:") ? db : "jdbc:sqlite:" + db, readers);
+    }
+
+    private Path databaseFile() {
+        String db = options.getOrDefault("db", DatabaseManager.DEFAULT_URL);
+        if (!db.startsWith("jdbc:")) {
+            return Path.of(db);
+        }
+        String path = db.substring("jdbc:sqlite:".length());
+        return db.startsWith("jdbc:sqlite:") && !path.contains(":memory:") && !path.startsWith("file:") ? Path.of(path) : null;
+    }
+
+    private String file() {
+        return arguments.isEmpty() || arguments.getFirst().equals("-") ? null : arguments.getFirst();
+    }
+
+    private static String formatOf(String file) {
+        if (Files.isDirectory(Path.of(file))) {
+            return "bundle";
+        }
+        if (file.toLowerCase(Locale.ROOT).endsWith(".fcs")) {
+            return "snapshot";
+        }
+        return DelimitedFormat.isDelimited(file) ? DelimitedFormat.forFile(file).name().toLowerCase(Locale.ROOT) : "json";
+    }
+
+    private void allowOptions(String... allowed) throws UsageException {
+        Set<String> known = Set.of(allowed);
+        for (String option : options.keySet()) {
+            if (!known.contains(option)) {
+                throw new UsageException("Unknown option --" + option);
+            }
+        }
+    }
+
+    private long longOption(String name) throws UsageException {
+        try {
+            return Long.parseLong(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new UsageException("--" + name + " needs a number");
+        }
+    }
+
+    private long longOption(String name, long defaultValue) throws UsageException {
+        return options.containsKey(name) ? longOption(name) : defaultValue;
+    }
+
+    private long positiveOption(String name, long defaultValue) throws UsageException {
+        long value = longOption(name, defaultValue);
+        if (value <= 0 || value > Integer.MAX_VALUE) {
+            throw new UsageException("--" + name + " must be positive");
+        }
+        return value;
+    }
+
+    private void report(String message) {
+        if (!options.containsKey("quiet")) {
+            err.println(message);
+        }
+    }
+
+    private void reportBytes(String verb, long bytes, long start) {
+        double seconds = seconds(start);
+        report(String.format(Locale.ROOT, "%s %d bytes in %.2f s, %.1f MB/s", verb, bytes, seconds, bytes / 1e6 / seconds));
+    }
+
+    private static double seconds(long start) {
+        return Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+    }
+
+    private Progress progress(String verb, AtomicLong bytes) {
+        return new Progress(verb, bytes);
+    }
+
+    /**
+     * Prints bytes moved so far and the rate to stderr every few seconds while a long command runs.
+     */
+    private final class Progress implements AutoCloseable {
+        private final ScheduledExecutorService timer;
+
+        Progress(String verb, AtomicLong bytes) {
+            if (options.containsKey("quiet")) {
+                timer = null;
+                return;
+            }
+            long start = System.nanoTime();
+            timer = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+            timer.scheduleAtFixedRate(() -> err.println(String.format(Locale.ROOT, "%s %.1f MB, %.1f MB/s",
+                    verb, bytes.get() / 1e6, bytes.get() / 1e6 / seconds(start))), PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void close() {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count = new AtomicLong();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count.addAndGet(read);
+            }
+            return read;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final AtomicLong count = new AtomicLong();
+        private final boolean closeTarget;
+
+        CountingOutputStream(OutputStream out, boolean closeTarget) {
+            super(out);
+            this.closeTarget = closeTarget;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closeTarget) {
+                super.close();
+            } else {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count.addAndGet(length);
+        }
+    }
+
+    private static final class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+}
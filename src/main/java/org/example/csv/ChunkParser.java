@@ -0,0 +1,131 @@
+package org.example.csv;
+
+import org.example.db.DatabaseManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses and validates one chunk of a delimited file. A record is "question, answer" or
+ * "question, answer, deck"; rows without a deck go to the default deck. Fields may be quoted
+ * with double quotes, which allows separators and newlines inside them, and "" stands for a quote.
+ * Cards are checked with {@link DatabaseManager#validateCard}, so rows that reach the writer
+ * cannot fail validation there. Stateless, so one parser serves all worker threads.
+ */
+class ChunkParser {
+    record Row(long line, String deck, String question, String answer) {
+    }
+
+    record BadRow(long line, String message) {
+    }
+
+    record ParsedChunk(List<Row> rows, List<BadRow> badRows) {
+    }
+
+    private final char separator;
+    private final String defaultDeck;
+
+    ChunkParser(char separator, String defaultDeck) {
+        this.separator = separator;
+        this.defaultDeck = defaultDeck == null || defaultDeck.isBlank() ? null : defaultDeck.strip();
+    }
+
+    ParsedChunk parse(ChunkSplitter.Chunk chunk) {
+        return new ChunkReader(chunk).read();
+    }
+
+    /**
+     * Parsing state for one chunk.
+     */
+    private class ChunkReader {
+        private final String text;
+        private final List<Row> rows = new ArrayList<>();
+        private final List<BadRow> badRows = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>(3);
+        private final StringBuilder field = new StringBuilder();
+        private long line;
+        private long recordLine;
+
+        ChunkReader(ChunkSplitter.Chunk chunk) {
+            text = new String(chunk.data(), StandardCharsets.UTF_8);
+            line = chunk.firstLine();
+            recordLine = line;
+        }
+
+        ParsedChunk read() {
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (quoted) {
+                    if (ch != '"') {
+                        if (ch == '\n') {
+                            line++;
+                        }
+                        field.append(ch);
+                    } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (ch == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else if (ch == '"' && field.isEmpty() && !wasQuoted) {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (ch == '\n') {
+                    endRecord();
+                    wasQuoted = false;
+                    line++;
+                    recordLine = line;
+                } else if (ch != '\r' || i + 1 >= text.length() || text.charAt(i + 1) != '\n') {
+                    field.append(ch);
+                }
+            }
+            if (quoted) {
+                badRows.add(new BadRow(recordLine, "Unterminated quoted field"));
+            } else if (!fields.isEmpty() || !field.isEmpty()) {
+                endRecord();
+            }
+            return new ParsedChunk(rows, badRows);
+        }
+
+        private void endRecord() {
+            fields.add(field.toString());
+            field.setLength(0);
+            if (!isBlankRecord(fields)) {
+                record(fields, recordLine, rows, badRows);
+            }
+            fields.clear();
+        }
+    }
+
+    private void record(List<String> fields, long line, List<Row> rows, List<BadRow> badRows) {
+        if (fields.size() < 2 || fields.size() > 3) {
+            badRows.add(new BadRow(line, "Expected 2 or 3 fields but found " + fields.size()));
+            return;
+        }
+        String deck = fields.size() == 3 && !fields.get(2).isBlank() ? fields.get(2).strip() : defaultDeck;
+        if (deck == null) {
+            badRows.add(new BadRow(line, "Missing deck name"));
+            return;
+        }
+        String question = fields.get(0).strip();
+        String answer = fields.get(1).strip();
+        try {
+            DatabaseManager.validateCard(question, answer);
+        } catch (IllegalArgumentException e) {
+            badRows.add(new BadRow(line, e.getMessage()));
+            return;
+        }
+        rows.add(new Row(line, deck, question, answer));
+    }
+
+    private static boolean isBlankRecord(List<String> fields) {
+        return fields.size() == 1 && fields.getFirst().isBlank();
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Cuts a delimited stream into chunks of about chunkSize bytes that end on a record boundary,
+ * so the chunks can be parsed independently. It runs the same quote state machine as
+ * {@link ChunkParser} over raw bytes (separator, quote and newline are ASCII, so this is safe
+ * for UTF-8), which is far cheaper than parsing and keeps one reader thread ahead of the parsers.
+ * Each chunk knows the line number it starts at, for error reports. A UTF-8 byte order mark and
+ * the Anki header lines starting with # at the top of the file are dropped before the first chunk.
+ */
+class ChunkSplitter {
+    /**
+     * A record longer than this is cut anyway and left to the parser to reject.
+     */
+    static final int MAX_CARRY = 64 << 20;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    record Chunk(int index, byte[] data, long firstLine) {
+    }
+
+    private final InputStream in;
+    private final byte separator;
+    private final int chunkSize;
+    private byte[] carry = new byte[0];
+    private long nextLine = 1;
+    private int index;
+    private boolean eof;
+    private boolean started;
+
+    ChunkSplitter(InputStream in, char separator, int chunkSize) {
+        this.in = in;
+        this.separator = (byte) separator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the next chunk, or null at the end of the stream.
+     */
+    Chunk next() throws IOException {
+        byte[] data = carry;
+        int length = carry.length;
+        while (true) {
+            if (!eof) {
+                data = Arrays.copyOf(data, length + chunkSize);
+                int read = in.readNBytes(data, length, chunkSize);
+                eof = read < chunkSize;
+                length += read;
+            }
+            if (!started) {
+                int skipped = skipPreamble(data, length, eof);
+                if (skipped < 0 && !eof && length < MAX_CARRY) {
+                    continue;
+                }
+                started = true;
+                skipped = skipped < 0 ? length : skipped;
+                nextLine += countNewlines(Arrays.copyOf(data, skipped));
+                data = Arrays.copyOfRange(data, skipped, length);
+                length -= skipped;
+            }
+            if (length == 0) {
+                return null;
+            }
+            int cut = lastBoundary(data, length);
+            if (cut < 0 && (eof || length >= MAX_CARRY)) {
+                cut = length;
+            }
+            if (cut > 0) {
+                byte[] chunk = Arrays.copyOf(data, cut);
+                carry = Arrays.copyOfRange(data, cut, length);
+                Chunk result = new Chunk(index++, chunk, nextLine);
+                nextLine += countNewlines(chunk);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Length of the byte order mark and header lines at the start, or -1 if more input is
+     * needed to see where they end.
+     */
+    private static int skipPreamble(byte[] data, int length, boolean eof) {
+        if (length < 3 && !eof) {
+            return -1;
+        }
+        int position = length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF ? 3 : 0;
+        while (position < length && data[position] == '#') {
+            int newline = position;
+            while (newline < length && data[newline] != '\n') {
+                newline++;
+            }
+            if (newline == length) {
+                return -1;
+            }
+            position = newline + 1;
+        }
+        return position == length && !eof ? -1 : position;
+    }
+
+    /**
+     * Position just after the last newline that ends a record, or -1 if there is none.
+     */
+    private int lastBoundary(byte[] data, int length) {
+        int state = FIELD_START;
+        int boundary = -1;
+        for (int i = 0; i < length; i++) {
+            byte b = data[i];
+            switch (state) {
+                case QUOTED -> state = b == '"' ? QUOTE_IN_QUOTED : QUOTED;
+                case QUOTE_IN_QUOTED -> {
+                    if (b == '"') {
+                        state = QUOTED;
+                    } else if (b == '\n') {
+                        boundary = i + 1;
+                        state = FIELD_START;
+                    } else {
+                        state = b == separator ? FIELD_START : UNQUOTED;
+                    }
+                }
+                default -> {
+                    if (b == '\n') {
+                        boundary = i + 1;
+                        state = FIELD_START;
+                    } else if (b == separator) {
+                        state = FIELD_START;
+                    } else if (b == '"' && state == FIELD_START) {
+                        state = QUOTED;
+                    } else {
+                        state = UNQUOTED;
+                    }
+                }
+            }
+        }
+        return boundary;
+    }
+
+    private static long countNewlines(byte[] data) {
+        long count = 0;
+        for (byte b : data) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
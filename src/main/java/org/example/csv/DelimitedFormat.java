@@ -0,0 +1,33 @@
+package org.example.csv;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Field separator of a delimited deck file. Anki exports its notes as tab-separated .txt files.
+ */
+@Getter
+public enum DelimitedFormat {
+    CSV(','),
+    TSV('\t');
+
+    private final char separator;
+
+    DelimitedFormat(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * Picks the format from the file extension: .tsv and .txt are tab-separated, everything else is CSV.
+     */
+    public static DelimitedFormat forFile(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".tsv") || name.endsWith(".txt") ? TSV : CSV;
+    }
+
+    public static boolean isDelimited(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt");
+    }
+}
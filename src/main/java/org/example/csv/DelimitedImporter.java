@@ -0,0 +1,185 @@
+package org.example.csv;
+
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.db.ImportResult;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Imports CSV or TSV deck files as a pipeline. A reader thread splits the input into chunks at
+ * record boundaries ({@link ChunkSplitter}), a fork-join pool parses and validates the chunks in
+ * parallel ({@link ChunkParser}), and the calling thread feeds the rows, in file order, to one
+ * batched {@link DeckImporter}. Parsed chunks wait in a bounded queue, so memory stays flat when
+ * parsing outruns SQLite, and parsing scales with cores until the single writer is the bottleneck.
+ * Consecutive rows of the same deck are written as one deck, deduplicated like any other import.
+ * A deck that appears again after other decks is opened again and merged into the cards already
+ * written. A deck that fails is rolled back and the rest of its rows are skipped, and rows of
+ * that deck later in the file are rejected, so no part of it is imported.
+ * Rows that fail to parse or validate are reported with their line numbers and do not stop the import.
+ */
+public class DelimitedImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final CompletableFuture<ChunkParser.ParsedChunk> END = CompletableFuture.completedFuture(null);
+
+    private final DatabaseManager db;
+    private final DelimitedFormat format;
+    private final ChunkParser parser;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public DelimitedImporter(DatabaseManager db, DelimitedFormat format, String defaultDeck) {
+        this(db, format, defaultDeck, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param defaultDeck deck for rows without a deck column, or null to reject such rows
+     */
+    public DelimitedImporter(DatabaseManager db, DelimitedFormat format, String defaultDeck, int parallelism, int chunkSize) {
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.db = db;
+        this.format = format;
+        this.parser = new ChunkParser(format.getSeparator(), defaultDeck);
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResult importFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return importStream(in);
+        }
+    }
+
+    public ImportResult importStream(InputStream in) throws IOException {
+        OperationMetrics metrics = Metrics.operation("csv.importStream");
+        long start = System.nanoTime();
+        boolean failed = true;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        BlockingQueue<CompletableFuture<ChunkParser.ParsedChunk>> queue = new ArrayBlockingQueue<>(parallelism * 2);
+        Thread reader = Thread.ofVirtual().name("delimited-reader").start(() -> split(in, pool, queue));
+        try {
+            ImportResult result = write(queue);
+            failed = false;
+            return result;
+        } finally {
+            reader.interrupt();
+            pool.shutdownNow();
+            metrics.record(start, failed);
+        }
+    }
+
+    private void split(InputStream in, ForkJoinPool pool, BlockingQueue<CompletableFuture<ChunkParser.ParsedChunk>> queue) {
+        try {
+            ChunkSplitter splitter = new ChunkSplitter(in, format.getSeparator(), chunkSize);
+            try {
+                for (ChunkSplitter.Chunk chunk = splitter.next(); chunk != null; chunk = splitter.next()) {
+                    ChunkSplitter.Chunk parsed = chunk;
+                    queue.put(CompletableFuture.supplyAsync(() -> parser.parse(parsed), pool));
+                }
+                queue.put(END);
+            } catch (IOException e) {
+                queue.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            // The writer gave up and no longer takes from the queue
+        }
+    }
+
+    private ImportResult write(BlockingQueue<CompletableFuture<ChunkParser.ParsedChunk>> queue) throws IOException {
+        ImportResult rejected = new ImportResult();
+        try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+            String deck = null;
+            // Each contiguous run of rows is one savepoint; a deck whose run was rolled back stays out
+            Set<String> failed = new HashSet<>();
+            boolean rejectedDeck = false;
+            boolean aborted = false;
+            for (CompletableFuture<ChunkParser.ParsedChunk> next = take(queue); next != END; next = take(queue)) {
+                ChunkParser.ParsedChunk chunk = join(next);
+                for (ChunkParser.BadRow bad : chunk.badRows()) {
+                    rejected.addBadRow(bad.line(), bad.message());
+                }
+                for (ChunkParser.Row row : chunk.rows()) {
+                    if (!row.deck().equals(deck)) {
+                        if (!endDeck(importer, deck) || aborted) {
+                            failed.add(deck);
+                        }
+                        deck = row.deck();
+                        rejectedDeck = failed.contains(deck);
+                        aborted = false;
+                    }
+                    if (rejectedDeck) {
+                        rejected.addBadRow(row.line(), "Deck " + deck + " failed earlier in the file");
+                        continue;
+                    }
+                    if (aborted) {
+                        continue;
+                    }
+                    try {
+                        if (!importer.isDeckOpen()) {
+                            importer.beginDeck(deck);
+                        }
+                        importer.addCard(row.question(), row.answer());
+                    } catch (Exception e) {
+                        importer.abortDeck(deck, e);
+                        aborted = true;
+                    }
+                }
+            }
+            endDeck(importer, deck);
+            ImportResult result = importer.finish();
+            result.setBadRowCount(rejected.getBadRowCount());
+            result.setBadRows(rejected.getBadRows());
+            return result;
+        }
+    }
+
+    /**
+     * Ends the open deck, if any, and returns false if it failed and was rolled back.
+     */
+    private static boolean endDeck(DeckImporter importer, String deck) {
+        if (importer.isDeckOpen()) {
+            try {
+                importer.endDeck();
+            } catch (Exception e) {
+                importer.abortDeck(deck, e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CompletableFuture<ChunkParser.ParsedChunk> take(BlockingQueue<CompletableFuture<ChunkParser.ParsedChunk>> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        }
+    }
+
+    private static ChunkParser.ParsedChunk join(CompletableFuture<ChunkParser.ParsedChunk> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+}
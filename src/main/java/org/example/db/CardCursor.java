@@ -0,0 +1,65 @@
+package org.example.db;
+
+import lombok.SneakyThrows;
+import org.example.enteties.Card;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over an open ResultSet of cards that keeps its pooled connection leased until closed.
+ * The statement is not taken from the connection's cache, so several cursors can be open
+ * on the same connection at once.
+ */
+class CardCursor implements Iterator<Card>, AutoCloseable {
+    private final PreparedStatement statement;
+    private final ResultSet rs;
+    private final Runnable release;
+    private boolean ready;
+    private boolean closed;
+
+    CardCursor(PreparedStatement statement, ResultSet rs, Runnable release) {
+        this.statement = statement;
+        this.rs = rs;
+        this.release = release;
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean hasNext() {
+        if (!ready && !closed) {
+            ready = rs.next();
+            if (!ready) {
+                close();
+            }
+        }
+        return ready;
+    }
+
+    @Override
+    @SneakyThrows
+    public Card next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return DatabaseManager.toCard(rs);
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            rs.close();
+            statement.close();
+        } finally {
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Review totals of one card, read from the card_stats rollup. lastReviewedAt is epoch milliseconds.
+ */
+@Value
+public class CardStats {
+    long cardId;
+    long deckId;
+    String question;
+    long reviews;
+    long correct;
+    long lastReviewedAt;
+
+    /**
+     * Share of correct answers between 0 and 1.
+     */
+    public double getAccuracy() {
+        return reviews == 0 ? 0 : (double) correct / reviews;
+    }
+}
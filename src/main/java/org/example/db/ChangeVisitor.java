@@ -0,0 +1,13 @@
+package org.example.db;
+
+/**
+ * Callback for {@link DatabaseManager#forEachChange}. Deleted decks arrive first, then every
+ * deck that was created or has new or changed cards, with only those cards, and last the cards
+ * deleted from decks that still exist. Applying them in this order reproduces the source state.
+ * A deleted card's answer is null if it was deleted before answers were recorded.
+ */
+public interface ChangeVisitor extends DeckVisitor {
+    void deletedDeck(String name) throws Exception;
+
+    void deletedCard(String deckName, String question, String answer) throws Exception;
+}
@@ -0,0 +1,175 @@
+package org.example.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small pool of SQLite connections: one writer guarded by a lock and a fixed set of readers.
+ * SQLite allows only one writer at a time, so serializing writes in Java avoids SQLITE_BUSY
+ * instead of retrying on it. A thread that holds the writer reads through it as well,
+ * so it sees its own uncommitted changes. In-memory databases are private to a connection,
+ * so they get no readers and every lease goes to the writer. Leases that had to wait, for the
+ * write lock or for a free reader, are counted together with the time spent waiting.
+ * Closing waits for the writer and, up to {@link #CLOSE_TIMEOUT_MILLIS}, for leased readers to be
+ * returned, so reads still in flight can finish; new leases are refused once closing has begun.
+ */
+class ConnectionPool implements AutoCloseable {
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    // Negative cache size is in KiB rather than pages
+    private static final int CACHE_SIZE_KIB = -32768;
+    private static final long MMAP_SIZE_BYTES = 256L * 1024 * 1024;
+    static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    // How often a thread waiting for a reader checks whether the pool is closing
+    private static final long READ_POLL_MILLIS = 100;
+
+    private final PooledConnection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<PooledConnection> readers;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final LongAdder writeWaits = new LongAdder();
+    private final LongAdder writeWaitNanos = new LongAdder();
+    private final LongAdder readWaits = new LongAdder();
+    private final LongAdder readWaitNanos = new LongAdder();
+    private final int readerCount;
+    private volatile boolean closed;
+
+    ConnectionPool(String url, int readerCount) throws SQLException {
+        int count = isInMemory(url) ? 0 : readerCount;
+        this.readerCount = count;
+        writer = open(url, false);
+        readers = new ArrayBlockingQueue<>(Math.max(1, count));
+        for (int i = 0; i < count; i++) {
+            readers.add(open(url, true));
+        }
+    }
+
+    static boolean isInMemory(String url) {
+        return url.contains(":memory:") || url.contains("mode=memory");
+    }
+
+    /**
+     * Opens a connection with the performance profile applied: foreign keys enforced so that
+     * ON DELETE CASCADE fires, WAL journaling so readers never block the writer, NORMAL
+     * synchronous (safe with WAL), a larger page cache, in-memory temp storage and memory-mapped reads.
+     */
+    private PooledConnection open(String url, boolean readOnly) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setBusyTimeout(BUSY_TIMEOUT_MILLIS);
+        config.enforceForeignKeys(true);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setCacheSize(CACHE_SIZE_KIB);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        if (readOnly) {
+            config.setReadOnly(true);
+        } else if (!isInMemory(url)) {
+            config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        }
+        Connection jdbc = config.createConnection(url);
+        try (Statement stmt = jdbc.createStatement()) {
+            stmt.execute("PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+        }
+        PooledConnection connection = new PooledConnection(jdbc);
+        all.add(connection);
+        return connection;
+    }
+
+    PooledConnection acquireWrite() {
+        if (!writeLock.tryLock()) {
+            long start = System.nanoTime();
+            writeLock.lock();
+            writeWaits.increment();
+            writeWaitNanos.add(System.nanoTime() - start);
+        }
+        if (closed && writeLock.getHoldCount() == 1) {
+            writeLock.unlock();
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        return writer;
+    }
+
+    PooledConnection acquireRead() throws InterruptedException {
+        if (all.size() == 1 || writeLock.isHeldByCurrentThread()) {
+            return acquireWrite();
+        }
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        PooledConnection reader = readers.poll();
+        if (reader == null) {
+            long start = System.nanoTime();
+            while (reader == null) {
+                if (closed) {
+                    throw new IllegalStateException("Connection pool is closed");
+                }
+                reader = readers.poll(READ_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            readWaits.increment();
+            readWaitNanos.add(System.nanoTime() - start);
+        }
+        if (closed) {
+            readers.add(reader);
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        return reader;
+    }
+
+    PoolStats stats() {
+        return new PoolStats(writeWaits.sum(), writeWaitNanos.sum(), readWaits.sum(), readWaitNanos.sum());
+    }
+
+    void release(PooledConnection connection) {
+        if (connection == writer) {
+            writeLock.unlock();
+        } else {
+            readers.add(connection);
+        }
+    }
+
+    /**
+     * Refuses new leases, waits for the writer and for leased readers, then closes every connection.
+     * Readers still leased when the timeout expires are closed anyway.
+     */
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        writeLock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+            List<PooledConnection> returned = new ArrayList<>();
+            while (returned.size() < readerCount) {
+                long remaining = deadline - System.nanoTime();
+                PooledConnection reader = remaining > 0 ? readers.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (reader == null) {
+                    break;
+                }
+                returned.add(reader);
+            }
+            SQLException failure = null;
+            for (PooledConnection connection : all) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while closing the connection pool", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
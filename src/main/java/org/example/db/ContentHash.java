@@ -0,0 +1,62 @@
+package org.example.db;
+
+import lombok.SneakyThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+
+/**
+ * Identity of a card within its deck: the first 64 bits of the SHA-256 of its question and
+ * answer, each lower-cased with surrounding whitespace trimmed and inner whitespace runs collapsed.
+ * Two cards that differ only in case or spacing get the same hash and count as the same card,
+ * while the same question with different answers gives different cards. The question alone has
+ * its own hash, which imports use to find the card whose answer a re-imported row changes.
+ */
+final class ContentHash {
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(ContentHash::newDigest);
+
+    private ContentHash() {
+    }
+
+    static long of(String question, String answer) {
+        // Normalized text has no newlines, so the separator keeps question and answer apart
+        return hash(normalize(question) + "\n" + normalize(answer));
+    }
+
+    static long ofQuestion(String question) {
+        return hash(normalize(question));
+    }
+
+    private static long hash(String normalized) {
+        byte[] digest = SHA256.get().digest(normalized.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    static String normalize(String value) {
+        StringBuilder out = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && !out.isEmpty()) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+                out.append(ch);
+            }
+        }
+        return out.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @SneakyThrows
+    private static MessageDigest newDigest() {
+        return MessageDigest.getInstance("SHA-256");
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Reviews given on one UTC day; day is a {@link DatabaseManager#epochDay} number.
+ */
+@Value
+public class DailyStats {
+    long day;
+    long reviews;
+    long correct;
+
+    /**
+     * Share of correct answers between 0 and 1.
+     */
+    public double getAccuracy() {
+        return reviews == 0 ? 0 : (double) correct / reviews;
+    }
+}
@@ -3,159 +3,1026 @@ package org.example.db;
 import lombok.SneakyThrows;
 import org.example.enteties.Card;
 import org.example.enteties.Deck;
+import org.example.enteties.Review;
+import org.example.enteties.ScheduledCard;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
  * Singleton class for managing SQLite database operations.
  * Handles CRUD for decks and cards.
+ * Safe for concurrent callers: reads and writes lease connections from a {@link ConnectionPool}
+ * and reuse that connection's cached prepared statements.
  */
-public class DatabaseManager {
-    private static DatabaseManager instance;
-    private Connection connection;
+public class DatabaseManager implements AutoCloseable {
+    /**
+     * Number of rows sent per executeBatch call and committed together during bulk imports.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String DEFAULT_URL = "jdbc:sqlite:flashcards.db";
+    public static final int DEFAULT_READERS = 4;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
 
-    private DatabaseManager() {
-        init();
+    private final ConnectionPool pool;
+
+    private DatabaseManager(String url, int readers) {
+        pool = init(url, readers);
+    }
+
+    private static class Holder {
+        private static final DatabaseManager INSTANCE = new DatabaseManager(DEFAULT_URL, DEFAULT_READERS);
     }
 
     public static DatabaseManager getInstance() {
-        if (instance == null) {
-            instance = new DatabaseManager();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Opens a separate manager for the given JDBC url, for example an in-memory database in tests
+     * or a file-backed database for tools. The caller is responsible for closing it.
+     */
+    public static DatabaseManager open(String url) {
+        return new DatabaseManager(url, DEFAULT_READERS);
+    }
+
+    public static DatabaseManager open(String url, int readers) {
+        return new DatabaseManager(url, readers);
+    }
+
+    @SneakyThrows
+    private ConnectionPool init(String url, int readers) {
+        ConnectionPool connectionPool = new ConnectionPool(url, readers);
+        PooledConnection c = connectionPool.acquireWrite();
+        try {
+            Migrations.migrate(c.getConnection());
+        } finally {
+            connectionPool.release(c);
         }
-        return instance;
+        return connectionPool;
+    }
+
+    /**
+     * Schema version recorded in PRAGMA user_version.
+     */
+    public int getSchemaVersion() {
+        return read("db.getSchemaVersion", c -> Migrations.currentVersion(c.getConnection()));
+    }
+
+    /**
+     * Work executed against a leased connection.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(PooledConnection connection) throws Exception;
+    }
+
+    /**
+     * Runs the work on a reader connection. Concurrent readers run in parallel.
+     */
+    public <T> T read(SqlWork<T> work) {
+        return read("db.read", work);
     }
 
+    /**
+     * Same as {@link #read(SqlWork)}, recording latency and errors under the given operation name.
+     */
     @SneakyThrows
-    private void init() {
-        connection = DriverManager.getConnection("jdbc:sqlite:flashcards.db");
-        createTables();
+    public <T> T read(String operation, SqlWork<T> work) {
+        OperationMetrics metrics = Metrics.operation(operation);
+        long start = System.nanoTime();
+        boolean failed = true;
+        PooledConnection c = pool.acquireRead();
+        try {
+            T result = work.run(c);
+            failed = false;
+            return result;
+        } finally {
+            pool.release(c);
+            metrics.record(start, failed);
+        }
     }
 
+    /**
+     * Runs the work on the single writer connection while holding the write lock.
+     */
+    public <T> T write(SqlWork<T> work) {
+        return write("db.write", work);
+    }
+
+    /**
+     * Same as {@link #write(SqlWork)}, recording latency (including lock wait) and errors
+     * under the given operation name.
+     */
     @SneakyThrows
-    private void createTables() {
-        String decksSql = "CREATE TABLE IF NOT EXISTS decks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE NOT NULL);";
-        String cardsSql = "CREATE TABLE IF NOT EXISTS cards (id INTEGER PRIMARY KEY AUTOINCREMENT, deck_id INTEGER, question TEXT NOT NULL, answer TEXT NOT NULL, FOREIGN KEY(deck_id) REFERENCES decks(id) ON DELETE CASCADE);";
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(decksSql);
-            stmt.execute(cardsSql);
+    public <T> T write(String operation, SqlWork<T> work) {
+        OperationMetrics metrics = Metrics.operation(operation);
+        long start = System.nanoTime();
+        boolean failed = true;
+        PooledConnection c = pool.acquireWrite();
+        try {
+            T result = work.run(c);
+            failed = false;
+            return result;
+        } finally {
+            pool.release(c);
+            metrics.record(start, failed);
         }
     }
 
+    /**
+     * Runs the work in one transaction on the writer connection, rolling back on any failure.
+     */
+    public <T> T transaction(String operation, SqlWork<T> work) {
+        return write(operation, c -> {
+            Connection connection = c.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(c);
+                connection.commit();
+                return result;
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Lock and reader waits since the database was opened; compare two snapshots with {@link PoolStats#minus}.
+     */
+    public PoolStats getPoolStats() {
+        return pool.stats();
+    }
+
+    @Override
     @SneakyThrows
+    public void close() {
+        pool.close();
+    }
+
     public long createDeck(String name) {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Deck name cannot be empty");
         }
-        PreparedStatement ps = connection.prepareStatement("INSERT INTO decks (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
-        ps.setString(1, name);
-        ps.executeUpdate();
-        ResultSet rs = ps.getGeneratedKeys();
-        if (rs.next()) {
-            return rs.getLong(1);
-        }
-        throw new SQLException("Creating deck failed, no ID obtained.");
+        return write("db.createDeck", c -> {
+            PreparedStatement ps = c.prepareReturningKeys("INSERT INTO decks (name) VALUES (?)");
+            ps.setString(1, name);
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+            throw new SQLException("Creating deck failed, no ID obtained.");
+        });
     }
 
-    @SneakyThrows
+    /**
+     * Loads every deck together with its cards using a single join query.
+     */
     public List<Deck> getAllDecks() {
+        return Metrics.time("db.getAllDecks", this::loadAllDecks);
+    }
+
+    private List<Deck> loadAllDecks() {
         List<Deck> decks = new ArrayList<>();
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT * FROM decks");
-        while (rs.next()) {
-            Deck deck = new Deck();
-            deck.setId(rs.getLong("id"));
-            deck.setName(rs.getString("name"));
-            deck.setCards(getCardsForDeck(deck.getId()));
-            decks.add(deck);
-        }
+        forEachDeck(new DeckVisitor() {
+            private Deck current;
+
+            @Override
+            public void beginDeck(long id, String name) {
+                current = new Deck();
+                current.setId(id);
+                current.setName(name);
+                current.setCards(new ArrayList<>());
+                decks.add(current);
+            }
+
+            @Override
+            public void card(Card card) {
+                current.getCards().add(card);
+            }
+
+            @Override
+            public void endDeck() {
+            }
+        });
         return decks;
     }
 
-    @SneakyThrows
+    /**
+     * Lists decks with their card counts without loading any cards.
+     */
+    public List<DeckSummary> getDeckSummaries() {
+        String sql = "SELECT d.id, d.name, (SELECT COUNT(*) FROM cards c WHERE c.deck_id = d.id) AS card_count FROM decks d ORDER BY d.id";
+        return read("db.getDeckSummaries", c -> {
+            List<DeckSummary> summaries = new ArrayList<>();
+            try (ResultSet rs = c.prepare(sql).executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(new DeckSummary(rs.getLong("id"), rs.getString("name"), rs.getInt("card_count")));
+                }
+            }
+            return summaries;
+        });
+    }
+
+    /**
+     * Returns the deck with its cards loaded lazily on the first call to {@link Deck#getCards()}.
+     */
     public Deck getDeckByName(String name) {
-        PreparedStatement ps = connection.prepareStatement("SELECT * FROM decks WHERE name = ?");
-        ps.setString(1, name);
-        ResultSet rs = ps.executeQuery();
-        if (rs.next()) {
-            Deck deck = new Deck();
-            deck.setId(rs.getLong("id"));
-            deck.setName(name);
-            deck.setCards(getCardsForDeck(deck.getId()));
-            return deck;
-        }
-        return null;
+        return read("db.getDeckByName", c -> {
+            PreparedStatement ps = c.prepare("SELECT id FROM decks WHERE name = ?");
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? lazyDeck(rs.getLong("id"), name) : null;
+            }
+        });
     }
 
-    @SneakyThrows
+    /**
+     * Returns the deck with its cards loaded lazily on the first call to {@link Deck#getCards()}.
+     */
     public Deck getDeckById(long id) {
-        PreparedStatement ps = connection.prepareStatement("SELECT * FROM decks WHERE id = ?");
-        ps.setLong(1, id);
-        ResultSet rs = ps.executeQuery();
-        if (rs.next()) {
-            Deck deck = new Deck();
-            deck.setId(id);
-            deck.setName(rs.getString("name"));
-            deck.setCards(getCardsForDeck(id));
-            return deck;
-        }
-        return null;
+        return read("db.getDeckById", c -> {
+            PreparedStatement ps = c.prepare("SELECT name FROM decks WHERE id = ?");
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? lazyDeck(id, rs.getString("name")) : null;
+            }
+        });
+    }
+
+    private Deck lazyDeck(long id, String name) {
+        Deck deck = new Deck();
+        deck.setId(id);
+        deck.setName(name);
+        deck.setCardLoader(() -> getCardsForDeck(id));
+        return deck;
     }
 
-    @SneakyThrows
     public void deleteDeck(long id) {
         // Cards are deleted cascade due to foreign key constraint
-        PreparedStatement ps = connection.prepareStatement("DELETE FROM decks WHERE id = ?");
-        ps.setLong(1, id);
-        ps.executeUpdate();
+        write("db.deleteDeck", c -> {
+            PreparedStatement ps = c.prepare("DELETE FROM decks WHERE id = ?");
+            ps.setLong(1, id);
+            return ps.executeUpdate();
+        });
     }
 
-    @SneakyThrows
-    public void addCard(long deckId, String question, String answer) {
+    /**
+     * The checks every card write goes through, whether added, updated or imported.
+     */
+    public static void validateCard(String question, String answer) {
         if (question == null || question.isBlank() || answer == null || answer.isBlank()) {
             throw new IllegalArgumentException("Question and answer cannot be empty");
         }
-        PreparedStatement ps = connection.prepareStatement("INSERT INTO cards (deck_id, question, answer) VALUES (?, ?, ?)");
-        ps.setLong(1, deckId);
-        ps.setString(2, question);
-        ps.setString(3, answer);
-        ps.executeUpdate();
     }
 
-    @SneakyThrows
+    /**
+     * Adds a card; throws {@link DuplicateCardException} if the deck already has a card
+     * with the same question and answer, ignoring case and spacing.
+     */
+    public void addCard(long deckId, String question, String answer) {
+        validateCard(question, answer);
+        write("db.addCard", c -> {
+            checkNoDuplicate(c, deckId, question, answer, 0);
+            PreparedStatement ps = c.prepare("INSERT INTO cards (deck_id, question, answer, content_hash, question_hash) VALUES (?, ?, ?, ?, ?)");
+            ps.setLong(1, deckId);
+            ps.setString(2, question);
+            ps.setString(3, answer);
+            ps.setLong(4, ContentHash.of(question, answer));
+            ps.setLong(5, ContentHash.ofQuestion(question));
+            return ps.executeUpdate();
+        });
+    }
+
+    public ImportResult importDecks(List<Deck> decks) {
+        return importDecks(decks, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Imports decks through a {@link DeckImporter}: one transaction, one reused prepared statement,
+     * batches of batchSize rows and a savepoint per deck so a failing deck is rolled back on its own.
+     */
+    public ImportResult importDecks(List<Deck> decks, int batchSize) {
+        return Metrics.time("db.importDecks", () -> importDecksInBatches(decks, batchSize));
+    }
+
+    private ImportResult importDecksInBatches(List<Deck> decks, int batchSize) {
+        try (DeckImporter importer = newImporter(batchSize)) {
+            for (Deck deck : decks) {
+                try {
+                    importer.beginDeck(deck.getName());
+                    for (Card card : deck.getCards()) {
+                        importer.addCard(card.getQuestion(), card.getAnswer());
+                    }
+                    importer.endDeck();
+                } catch (Exception e) {
+                    importer.abortDeck(deck.getName(), e);
+                }
+            }
+            return importer.finish();
+        }
+    }
+
+    /**
+     * Opens a batched writer for streaming imports. The importer holds the write lock
+     * until it is closed, so the caller must close it on the same thread.
+     */
+    public DeckImporter newImporter(int batchSize) {
+        PooledConnection c = pool.acquireWrite();
+        try {
+            return new DeckImporter(c, batchSize, () -> pool.release(c));
+        } catch (RuntimeException e) {
+            pool.release(c);
+            throw e;
+        }
+    }
+
+    /**
+     * Walks all decks and their cards with a single ordered query, handing rows to the visitor
+     * one at a time so that nothing but the current row is held in memory.
+     */
+    public void forEachDeck(DeckVisitor visitor) {
+        String sql = "SELECT d.id AS deck_id, d.name, c.id, c.question, c.answer FROM decks d "
+                + "LEFT JOIN cards c ON c.deck_id = d.id ORDER BY d.id, c.id";
+        read("db.forEachDeck", c -> {
+            try (ResultSet rs = c.prepare(sql).executeQuery()) {
+                long currentDeck = -1;
+                while (rs.next()) {
+                    long deckId = rs.getLong("deck_id");
+                    if (deckId != currentDeck) {
+                        if (currentDeck != -1) {
+                            visitor.endDeck();
+                        }
+                        visitor.beginDeck(deckId, rs.getString("name"));
+                        currentDeck = deckId;
+                    }
+                    long cardId = rs.getLong("id");
+                    if (!rs.wasNull()) {
+                        Card card = new Card();
+                        card.setId(cardId);
+                        card.setQuestion(rs.getString("question"));
+                        card.setAnswer(rs.getString("answer"));
+                        visitor.card(card);
+                    }
+                }
+                if (currentDeck != -1) {
+                    visitor.endDeck();
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Latest change sequence number. Every insert, update and delete of a deck or card takes
+     * the next number, so a client that has synced up to this value can later ask for
+     * everything after it with {@link #forEachChange}.
+     */
+    public long getChangeSequence() {
+        return read("db.getChangeSequence", c -> {
+            try (ResultSet rs = c.prepare("SELECT seq FROM change_counter").executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /**
+     * Walks everything that changed after the given sequence number, in the order described by
+     * {@link ChangeVisitor}, and returns the sequence number the changes run up to. All queries
+     * run in one read transaction, so they see a single consistent state. Each query is a range
+     * scan over a change_seq index or the tombstones, so the cost follows the number of changes
+     * rather than the size of the database. Cards come grouped by deck in id order.
+     */
+    public long forEachChange(long since, ChangeVisitor visitor) {
+        return read("db.forEachChange", c -> {
+            Connection connection = c.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long until;
+                try (ResultSet rs = c.prepare("SELECT seq FROM change_counter").executeQuery()) {
+                    until = rs.next() ? rs.getLong(1) : 0L;
+                }
+                PreparedStatement deletedDecks = c.prepare("SELECT deck_name FROM change_tombstones WHERE seq > ? AND kind = 'deck' ORDER BY seq");
+                deletedDecks.setLong(1, since);
+                try (ResultSet rs = deletedDecks.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.deletedDeck(rs.getString(1));
+                    }
+                }
+                visitChangedDecks(c, since, visitor);
+                // A card deleted and added again since then is already in the changed cards
+                // Tombstones from before answers were recorded hold the question's hash
+                PreparedStatement deletedCards = c.prepare("SELECT t.deck_name, t.question, t.answer FROM change_tombstones t "
+                        + "WHERE t.seq > ? AND t.kind = 'card' AND NOT EXISTS (SELECT 1 FROM cards x JOIN decks d ON d.id = x.deck_id "
+                        + "WHERE d.name = t.deck_name AND (x.content_hash = t.content_hash "
+                        + "OR (t.answer IS NULL AND x.question_hash = t.content_hash))) ORDER BY t.seq");
+                deletedCards.setLong(1, since);
+                try (ResultSet rs = deletedCards.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.deletedCard(rs.getString(1), rs.getString(2), rs.getString(3));
+                    }
+                }
+                return until;
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private static void visitChangedDecks(PooledConnection c, long since, ChangeVisitor visitor) throws Exception {
+        Set<Long> visited = new HashSet<>();
+        PreparedStatement cards = c.prepare("SELECT c.deck_id, d.name, c.id, c.question, c.answer FROM cards c "
+                + "JOIN decks d ON d.id = c.deck_id WHERE c.change_seq > ? ORDER BY c.deck_id, c.id");
+        cards.setLong(1, since);
+        try (ResultSet rs = cards.executeQuery()) {
+            long currentDeck = -1;
+            while (rs.next()) {
+                long deckId = rs.getLong("deck_id");
+                if (deckId != currentDeck) {
+                    if (currentDeck != -1) {
+                        visitor.endDeck();
+                    }
+                    visitor.beginDeck(deckId, rs.getString("name"));
+                    visited.add(deckId);
+                    currentDeck = deckId;
+                }
+                visitor.card(toCard(rs));
+            }
+            if (currentDeck != -1) {
+                visitor.endDeck();
+            }
+        }
+        // New decks without new cards
+        PreparedStatement decks = c.prepare("SELECT id, name FROM decks WHERE change_seq > ? ORDER BY id");
+        decks.setLong(1, since);
+        try (ResultSet rs = decks.executeQuery()) {
+            while (rs.next()) {
+                if (!visited.contains(rs.getLong(1))) {
+                    visitor.beginDeck(rs.getLong(1), rs.getString(2));
+                    visitor.endDeck();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops tombstones up to and including the given sequence number, once every client has
+     * synced past it. Returns the number removed.
+     */
+    public int pruneTombstones(long upTo) {
+        return write("db.pruneTombstones", c -> {
+            PreparedStatement ps = c.prepare("DELETE FROM change_tombstones WHERE seq <= ?");
+            ps.setLong(1, upTo);
+            return ps.executeUpdate();
+        });
+    }
+
+    /**
+     * Rebuilds the database file to reclaim the space of deleted rows, then refreshes the
+     * query planner statistics. Takes the write lock; readers keep working on WAL databases.
+     */
+    public void vacuum() {
+        write("db.vacuum", c -> {
+            try (Statement stmt = c.getConnection().createStatement()) {
+                stmt.execute("VACUUM");
+                stmt.execute("PRAGMA optimize");
+            }
+            return null;
+        });
+    }
+
     public List<Card> getCardsForDeck(long deckId) {
-        List<Card> cards = new ArrayList<>();
-        PreparedStatement ps = connection.prepareStatement("SELECT * FROM cards WHERE deck_id = ?");
+        return read("db.getCardsForDeck", c -> {
+            List<Card> cards = new ArrayList<>();
+            PreparedStatement ps = c.prepare("SELECT id, question, answer FROM cards WHERE deck_id = ? ORDER BY id");
+            ps.setLong(1, deckId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(toCard(rs));
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Returns up to limit cards of the deck with id greater than afterId, in id order.
+     * Pass 0 for the first page and the last returned id for the next one. The deck_id index
+     * carries the rowid, so every page is a single index seek and its cost does not grow
+     * with deck size or with how deep the page is.
+     */
+    public List<Card> getCardsPage(long deckId, long afterId, int limit) {
+        return read("db.getCardsPage", c -> {
+            PreparedStatement ps = c.prepare("SELECT id, question, answer FROM cards WHERE deck_id = ? AND id > ? ORDER BY id LIMIT ?");
+            ps.setLong(1, deckId);
+            ps.setLong(2, afterId);
+            ps.setInt(3, limit);
+            List<Card> cards = new ArrayList<>(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(toCard(rs));
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Streams the deck's cards in id order from one open ResultSet, so memory stays flat however
+     * large the deck is. The stream holds a pooled connection (the writer, for in-memory databases)
+     * until it is exhausted or closed, so use it in try-with-resources.
+     */
+    @SneakyThrows
+    public Stream<Card> streamCards(long deckId) {
+        OperationMetrics metrics = Metrics.operation("db.streamCards");
+        long start = System.nanoTime();
+        PooledConnection c = pool.acquireRead();
+        try {
+            PreparedStatement ps = c.getConnection().prepareStatement("SELECT id, question, answer FROM cards WHERE deck_id = ? ORDER BY id");
+            ps.setLong(1, deckId);
+            CardCursor cursor = new CardCursor(ps, ps.executeQuery(), () -> {
+                pool.release(c);
+                metrics.record(start, false);
+            });
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(cursor::close);
+        } catch (Exception e) {
+            pool.release(c);
+            metrics.record(start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Runs under the write lock before the insert or update, so no other write can add the same card in between.
+     */
+    private static void checkNoDuplicate(PooledConnection c, long deckId, String question, String answer, long exceptCardId) throws SQLException {
+        PreparedStatement ps = c.prepare("SELECT id FROM cards WHERE deck_id = ? AND content_hash = ? AND id <> ?");
         ps.setLong(1, deckId);
-        ResultSet rs = ps.executeQuery();
-        while (rs.next()) {
-            Card card = new Card();
-            card.setId(rs.getLong("id"));
-            card.setQuestion(rs.getString("question"));
-            card.setAnswer(rs.getString("answer"));
-            cards.add(card);
+        ps.setLong(2, ContentHash.of(question, answer));
+        ps.setLong(3, exceptCardId);
+        try (ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                throw new DuplicateCardException(rs.getLong(1));
+            }
         }
-        return cards;
     }
 
-    @SneakyThrows
+    static Card toCard(ResultSet rs) throws SQLException {
+        Card card = new Card();
+        card.setId(rs.getLong("id"));
+        card.setQuestion(rs.getString("question"));
+        card.setAnswer(rs.getString("answer"));
+        return card;
+    }
+
+    /**
+     * Replaces a card's text; throws {@link DuplicateCardException} if another card of its deck
+     * already has the new question and answer.
+     */
     public void updateCard(long cardId, String question, String answer) {
-        if (question == null || question.isBlank() || answer == null || answer.isBlank()) {
-            throw new IllegalArgumentException("Question and answer cannot be empty");
-        }
-        PreparedStatement ps = connection.prepareStatement("UPDATE cards SET question = ?, answer = ? WHERE id = ?");
-        ps.setString(1, question);
-        ps.setString(2, answer);
-        ps.setLong(3, cardId);
-        ps.executeUpdate();
+        validateCard(question, answer);
+        write("db.updateCard", c -> {
+            PreparedStatement deck = c.prepare("SELECT deck_id FROM cards WHERE id = ?");
+            deck.setLong(1, cardId);
+            try (ResultSet rs = deck.executeQuery()) {
+                if (rs.next()) {
+                    checkNoDuplicate(c, rs.getLong(1), question, answer, cardId);
+                }
+            }
+            PreparedStatement ps = c.prepare("UPDATE cards SET question = ?, answer = ?, content_hash = ?, question_hash = ? WHERE id = ?");
+            ps.setString(1, question);
+            ps.setString(2, answer);
+            ps.setLong(3, ContentHash.of(question, answer));
+            ps.setLong(4, ContentHash.ofQuestion(question));
+            ps.setLong(5, cardId);
+            return ps.executeUpdate();
+        });
     }
 
-    @SneakyThrows
     public void deleteCard(long cardId) {
-        PreparedStatement ps = connection.prepareStatement("DELETE FROM cards WHERE id = ?");
-        ps.setLong(1, cardId);
-        ps.executeUpdate();
+        write("db.deleteCard", c -> {
+            PreparedStatement ps = c.prepare("DELETE FROM cards WHERE id = ?");
+            ps.setLong(1, cardId);
+            return ps.executeUpdate();
+        });
+    }
+
+    /**
+     * Returns up to limit cards of the deck that are due at or before now, ordered by (dueAt, cardId)
+     * and strictly after the given keyset position. Served from the (deck_id, due_at) index, so the
+     * cost of a page does not depend on deck size. Pass Long.MIN_VALUE and 0 for the first page.
+     */
+    public List<ScheduledCard> getDueCards(long deckId, long now, long afterDueAt, long afterCardId, int limit) {
+        String sql = "SELECT s.card_id, s.deck_id, s.interval_days, s.ease, s.repetitions, s.due_at, c.question, c.answer "
+                + "FROM card_schedule s JOIN cards c ON c.id = s.card_id "
+                + "WHERE s.deck_id = ? AND s.due_at <= ? AND (s.due_at, s.card_id) > (?, ?) "
+                + "ORDER BY s.due_at, s.card_id LIMIT ?";
+        return read("db.getDueCards", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setLong(1, deckId);
+            ps.setLong(2, now);
+            ps.setLong(3, afterDueAt);
+            ps.setLong(4, afterCardId);
+            ps.setInt(5, limit);
+            List<ScheduledCard> cards = new ArrayList<>(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(toScheduledCard(rs));
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Same as {@link #getDueCards} without the card text: question and answer are left null.
+     * Reads only card_schedule, for callers that already hold the text, such as a study
+     * session over a cached {@link org.example.cache.CardStore}.
+     */
+    public List<ScheduledCard> getDueSchedules(long deckId, long now, long afterDueAt, long afterCardId, int limit) {
+        String sql = "SELECT s.card_id, s.deck_id, s.interval_days, s.ease, s.repetitions, s.due_at, NULL AS question, NULL AS answer "
+                + "FROM card_schedule s WHERE s.deck_id = ? AND s.due_at <= ? AND (s.due_at, s.card_id) > (?, ?) "
+                + "ORDER BY s.due_at, s.card_id LIMIT ?";
+        return read("db.getDueSchedules", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setLong(1, deckId);
+            ps.setLong(2, now);
+            ps.setLong(3, afterDueAt);
+            ps.setLong(4, afterCardId);
+            ps.setInt(5, limit);
+            List<ScheduledCard> cards = new ArrayList<>(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(toScheduledCard(rs));
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Hands every card id of the deck, in id order, to the consumer. Reads only the deck_id
+     * index, which carries the rowid, so no card text is touched.
+     */
+    public void forEachCardId(long deckId, LongConsumer consumer) {
+        read("db.forEachCardId", c -> {
+            PreparedStatement ps = c.prepare("SELECT id FROM cards WHERE deck_id = ? ORDER BY id");
+            ps.setLong(1, deckId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(rs.getLong(1));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the lowest and highest card id of the deck, or null if the deck has no cards.
+     * Each bound is a single seek into the deck_id index, whatever the deck's size.
+     */
+    public long[] getCardIdRange(long deckId) {
+        return read("db.getCardIdRange", c -> {
+            // Separate subqueries: SQLite only answers a lone MIN or MAX from the index
+            PreparedStatement ps = c.prepare("SELECT (SELECT MIN(id) FROM cards WHERE deck_id = ?), "
+                    + "(SELECT MAX(id) FROM cards WHERE deck_id = ?)");
+            ps.setLong(1, deckId);
+            ps.setLong(2, deckId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                long low = rs.getLong(1);
+                return rs.wasNull() ? null : new long[]{low, rs.getLong(2)};
+            }
+        });
+    }
+
+    /**
+     * Returns the cards with the given ids, ids[from] to ids[to - 1], with their schedules and
+     * in the same order. Ids of deleted cards are left out.
+     */
+    public List<ScheduledCard> getScheduledCards(long[] ids, int from, int to) {
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        // One cached statement per batch size; callers use a fixed read-ahead, so there are few
+        String sql = "SELECT s.card_id, s.deck_id, s.interval_days, s.ease, s.repetitions, s.due_at, c.question, c.answer "
+                + "FROM card_schedule s JOIN cards c ON c.id = s.card_id WHERE s.card_id IN ("
+                + "?, ".repeat(to - from - 1) + "?)";
+        return read("db.getScheduledCards", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            for (int i = from; i < to; i++) {
+                ps.setLong(i - from + 1, ids[i]);
+            }
+            Map<Long, ScheduledCard> found = new HashMap<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ScheduledCard card = toScheduledCard(rs);
+                    found.put(card.getCardId(), card);
+                }
+            }
+            List<ScheduledCard> cards = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ScheduledCard card = found.get(ids[i]);
+                if (card != null) {
+                    cards.add(card);
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Returns up to limit cards of the deck ordered by (ease, cardId), weakest first, strictly
+     * after the given keyset position, whether due or not. Served from the (deck_id, ease, card_id)
+     * index, so each page costs the same for any deck size. Pass 0 and 0 for the first page.
+     */
+    public List<ScheduledCard> getWeakCards(long deckId, double afterEase, long afterCardId, int limit) {
+        String sql = "SELECT s.card_id, s.deck_id, s.interval_days, s.ease, s.repetitions, s.due_at, c.question, c.answer "
+                + "FROM card_schedule s JOIN cards c ON c.id = s.card_id "
+                + "WHERE s.deck_id = ? AND (s.ease, s.card_id) > (?, ?) "
+                + "ORDER BY s.ease, s.card_id LIMIT ?";
+        return read("db.getWeakCards", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setLong(1, deckId);
+            ps.setDouble(2, afterEase);
+            ps.setLong(3, afterCardId);
+            ps.setInt(4, limit);
+            List<ScheduledCard> cards = new ArrayList<>(limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(toScheduledCard(rs));
+                }
+            }
+            return cards;
+        });
+    }
+
+    /**
+     * Returns one card with its schedule, or null if it does not exist.
+     */
+    public ScheduledCard getScheduledCard(long cardId) {
+        String sql = "SELECT s.card_id, s.deck_id, s.interval_days, s.ease, s.repetitions, s.due_at, c.question, c.answer "
+                + "FROM card_schedule s JOIN cards c ON c.id = s.card_id WHERE s.card_id = ?";
+        return read("db.getScheduledCard", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setLong(1, cardId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? toScheduledCard(rs) : null;
+            }
+        });
+    }
+
+    private static ScheduledCard toScheduledCard(ResultSet rs) throws SQLException {
+        ScheduledCard card = new ScheduledCard();
+        card.setCardId(rs.getLong("card_id"));
+        card.setDeckId(rs.getLong("deck_id"));
+        card.setIntervalDays(rs.getInt("interval_days"));
+        card.setEase(rs.getDouble("ease"));
+        card.setRepetitions(rs.getInt("repetitions"));
+        card.setDueAt(rs.getLong("due_at"));
+        card.setQuestion(rs.getString("question"));
+        card.setAnswer(rs.getString("answer"));
+        return card;
+    }
+
+    public void updateSchedule(ScheduledCard card) {
+        write("db.updateSchedule", c -> {
+            PreparedStatement ps = c.prepare("UPDATE card_schedule SET interval_days = ?, ease = ?, repetitions = ?, due_at = ? WHERE card_id = ?");
+            ps.setInt(1, card.getIntervalDays());
+            ps.setDouble(2, card.getEase());
+            ps.setInt(3, card.getRepetitions());
+            ps.setLong(4, card.getDueAt());
+            ps.setLong(5, card.getCardId());
+            return ps.executeUpdate();
+        });
+    }
+
+    public List<SearchHit> searchCards(String query, Long deckId, int limit) {
+        return searchCards(query, deckId, limit, 0);
+    }
+
+    /**
+     * Full-text search over question and answer, best matches first (FTS5 bm25 rank).
+     * Every word of the query must match; the last word also matches as a prefix.
+     * Pass a null deckId to search all decks.
+     */
+    public List<SearchHit> searchCards(String query, Long deckId, int limit, int offset) {
+        String match = toMatchExpression(query);
+        if (match.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT c.id, c.deck_id, c.question, c.answer FROM cards_fts f JOIN cards c ON c.id = f.rowid "
+                + "WHERE cards_fts MATCH ?" + (deckId != null ? " AND c.deck_id = ?" : "")
+                + " ORDER BY f.rank LIMIT ? OFFSET ?";
+        return read("db.searchCards", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            int i = 1;
+            ps.setString(i++, match);
+            if (deckId != null) {
+                ps.setLong(i++, deckId);
+            }
+            ps.setInt(i++, limit);
+            ps.setInt(i, offset);
+            List<SearchHit> hits = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    hits.add(new SearchHit(rs.getLong("id"), rs.getLong("deck_id"), rs.getString("question"), rs.getString("answer")));
+                }
+            }
+            return hits;
+        });
+    }
+
+    /**
+     * Quotes every word so that user input can never be parsed as FTS5 query syntax.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (!match.isEmpty()) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append('"');
+        }
+        if (!match.isEmpty()) {
+            match.append('*');
+        }
+        return match.toString();
+    }
+
+    /**
+     * Stores graded answers in one transaction: each review updates its card's schedule, appends
+     * a row to review_log and adds itself to the card_stats and deck_daily_stats rollups, so the
+     * aggregates always match the log. Reviews of cards deleted meanwhile are skipped.
+     */
+    public void saveReviews(List<Review> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        transaction("db.saveReviews", c -> {
+            PreparedStatement schedule = c.prepare("UPDATE card_schedule SET interval_days = ?, ease = ?, repetitions = ?, due_at = ? WHERE card_id = ?");
+            PreparedStatement log = c.prepare("INSERT INTO review_log (card_id, deck_id, grade, correct, reviewed_at) "
+                    + "SELECT ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM cards WHERE id = ?)");
+            PreparedStatement cardStats = c.prepare("INSERT INTO card_stats (card_id, reviews, correct, last_reviewed_at) "
+                    + "SELECT ?, 1, ?, ? WHERE EXISTS (SELECT 1 FROM cards WHERE id = ?) "
+                    + "ON CONFLICT(card_id) DO UPDATE SET reviews = reviews + 1, correct = correct + excluded.correct, "
+                    + "last_reviewed_at = MAX(last_reviewed_at, excluded.last_reviewed_at)");
+            // Counted against the card's current deck, which is the deck the review was for unless it moved
+            PreparedStatement deckStats = c.prepare("INSERT INTO deck_daily_stats (deck_id, day, reviews, correct) "
+                    + "SELECT deck_id, ?, 1, ? FROM cards WHERE id = ? AND deck_id IS NOT NULL "
+                    + "ON CONFLICT(deck_id, day) DO UPDATE SET reviews = reviews + 1, correct = correct + excluded.correct");
+            for (Review review : reviews) {
+                int correct = review.isCorrect() ? 1 : 0;
+                cardStats.setLong(1, review.getCardId());
+                cardStats.setInt(2, correct);
+                cardStats.setLong(3, review.getReviewedAt());
+                cardStats.setLong(4, review.getCardId());
+                cardStats.addBatch();
+                deckStats.setLong(1, epochDay(review.getReviewedAt()));
+                deckStats.setInt(2, correct);
+                deckStats.setLong(3, review.getCardId());
+                deckStats.addBatch();
+                schedule.setInt(1, review.getIntervalDays());
+                schedule.setDouble(2, review.getEase());
+                schedule.setInt(3, review.getRepetitions());
+                schedule.setLong(4, review.getDueAt());
+                schedule.setLong(5, review.getCardId());
+                schedule.addBatch();
+                log.setLong(1, review.getCardId());
+                log.setLong(2, review.getDeckId());
+                log.setInt(3, review.getGrade());
+                log.setBoolean(4, review.isCorrect());
+                log.setLong(5, review.getReviewedAt());
+                log.setLong(6, review.getCardId());
+                log.addBatch();
+            }
+            schedule.executeBatch();
+            log.executeBatch();
+            cardStats.executeBatch();
+            deckStats.executeBatch();
+            return null;
+        });
+    }
+
+    /**
+     * UTC day number of an epoch-millisecond timestamp, the bucket used by deck_daily_stats.
+     */
+    public static long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+
+    /**
+     * Review totals of every deck, by name, summed from the daily rollup. Decks never studied have zero reviews.
+     */
+    public List<DeckStats> getDeckStats() {
+        return read("db.getDeckStats", c -> {
+            PreparedStatement ps = c.prepare("SELECT d.id, d.name, COALESCE(SUM(s.reviews), 0), COALESCE(SUM(s.correct), 0) "
+                    + "FROM decks d LEFT JOIN deck_daily_stats s ON s.deck_id = d.id GROUP BY d.id ORDER BY d.name");
+            List<DeckStats> stats = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stats.add(new DeckStats(rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4)));
+                }
+            }
+            return stats;
+        });
+    }
+
+    /**
+     * Review totals of one card, or null if it has never been reviewed.
+     */
+    public CardStats getCardStats(long cardId) {
+        return read("db.getCardStats", c -> {
+            PreparedStatement ps = c.prepare("SELECT s.card_id, c.deck_id, c.question, s.reviews, s.correct, s.last_reviewed_at "
+                    + "FROM card_stats s JOIN cards c ON c.id = s.card_id WHERE s.card_id = ?");
+            ps.setLong(1, cardId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? toCardStats(rs) : null;
+            }
+        });
+    }
+
+    /**
+     * Cards with at least minReviews reviews, lowest accuracy first and, among equals, most reviewed first.
+     * A null deckId covers all decks.
+     */
+    public List<CardStats> getHardestCards(Long deckId, int minReviews, int limit) {
+        String sql = "SELECT s.card_id, c.deck_id, c.question, s.reviews, s.correct, s.last_reviewed_at "
+                + "FROM card_stats s JOIN cards c ON c.id = s.card_id WHERE s.reviews >= ?"
+                + (deckId != null ? " AND c.deck_id = ?" : "")
+                + " ORDER BY CAST(s.correct AS REAL) / s.reviews, s.reviews DESC, s.card_id LIMIT ?";
+        return read("db.getHardestCards", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            int i = 1;
+            ps.setInt(i++, Math.max(1, minReviews));
+            if (deckId != null) {
+                ps.setLong(i++, deckId);
+            }
+            ps.setInt(i, limit);
+            List<CardStats> stats = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stats.add(toCardStats(rs));
+                }
+            }
+            return stats;
+        });
+    }
+
+    private static CardStats toCardStats(ResultSet rs) throws SQLException {
+        return new CardStats(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getLong(4), rs.getLong(5), rs.getLong(6));
+    }
+
+    /**
+     * Reviews per UTC day from fromDay to toDay inclusive, as {@link #epochDay} numbers, in day order.
+     * Days without reviews are left out. A null deckId adds up all decks.
+     */
+    public List<DailyStats> getDailyStats(Long deckId, long fromDay, long toDay) {
+        String sql = "SELECT day, SUM(reviews), SUM(correct) FROM deck_daily_stats WHERE day BETWEEN ? AND ?"
+                + (deckId != null ? " AND deck_id = ?" : "")
+                + " GROUP BY day ORDER BY day";
+        return read("db.getDailyStats", c -> {
+            PreparedStatement ps = c.prepare(sql);
+            ps.setLong(1, fromDay);
+            ps.setLong(2, toDay);
+            if (deckId != null) {
+                ps.setLong(3, deckId);
+            }
+            List<DailyStats> stats = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    stats.add(new DailyStats(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+                }
+            }
+            return stats;
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,306 @@
+package org.example.db;
+
+import lombok.SneakyThrows;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Batched writer used for bulk imports, holding the pool's writer connection until closed.
+ * Keeps one transaction open, reuses its prepared statements for all cards, flushes with
+ * executeBatch every batchSize rows and commits once at least batchSize rows are pending
+ * at a deck boundary. Each deck is guarded by a savepoint, so a failing deck is rolled back
+ * on its own. Decks are matched by name. Cards are matched by {@link ContentHash} with point
+ * lookups on the (deck_id, content_hash) index: a card with the same question and answer is
+ * skipped, or updated in place if only case or spacing differ. Otherwise a card whose question
+ * is the only one of its kind in the deck, found through the (deck_id, question_hash) index, gets
+ * the new answer, unless the deck being imported has already used that question; anything else
+ * is inserted. Importing a file twice is therefore a no-op, and a deck may hold the same question
+ * with different answers. Decks and cards can also be deleted by name and text, which is how
+ * deltas are applied.
+ */
+public class DeckImporter implements AutoCloseable {
+    private final PooledConnection pooled;
+    private final Connection connection;
+    private final Runnable onClose;
+    private final int batchSize;
+    private final boolean autoCommit;
+    private final PreparedStatement findCard;
+    private final PreparedStatement findQuestion;
+    private final PreparedStatement insertCard;
+    private final PreparedStatement updateCard;
+    // Question hashes written to the open deck but still sitting in a JDBC batch, invisible to the lookups
+    private final Set<Long> batched = new HashSet<>();
+    // Question hashes imported into the open deck so far, which no later row may take over
+    private final Set<Long> deckQuestions = new HashSet<>();
+    private final ImportResult result = new ImportResult();
+
+    private String deckName;
+    private long deckId;
+    private Savepoint savepoint;
+    private int pending;
+    private int inserted;
+    private int updated;
+    private int skipped;
+    private int uncommitted;
+    private boolean finished;
+
+    @SneakyThrows
+    DeckImporter(PooledConnection pooled, int batchSize, Runnable onClose) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.pooled = pooled;
+        this.connection = pooled.getConnection();
+        this.onClose = onClose;
+        this.batchSize = batchSize;
+        this.findCard = pooled.prepare("SELECT id, question, answer FROM cards WHERE deck_id = ? AND content_hash = ?");
+        this.findQuestion = pooled.prepare("SELECT id FROM cards WHERE deck_id = ? AND question_hash = ? LIMIT 2");
+        this.insertCard = pooled.prepare("INSERT INTO cards (deck_id, question, answer, content_hash, question_hash) VALUES (?, ?, ?, ?, ?)");
+        this.updateCard = pooled.prepare("UPDATE cards SET question = ?, answer = ?, content_hash = ? WHERE id = ?");
+        this.autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+    }
+
+    @SneakyThrows
+    public void beginDeck(String name) {
+        if (deckName != null) {
+            throw new IllegalStateException("Deck " + deckName + " is still open");
+        }
+        savepoint = null;
+        deckName = name;
+        pending = 0;
+        inserted = 0;
+        updated = 0;
+        skipped = 0;
+        deckQuestions.clear();
+        savepoint = connection.setSavepoint();
+        deckId = findOrCreateDeckId(name);
+    }
+
+    public boolean isDeckOpen() {
+        return deckName != null;
+    }
+
+    @SneakyThrows
+    public void addCard(String question, String answer) {
+        if (deckName == null) {
+            throw new IllegalStateException("No deck is open");
+        }
+        DatabaseManager.validateCard(question, answer);
+        long hash = ContentHash.of(question, answer);
+        long questionHash = ContentHash.ofQuestion(question);
+        if (batched.contains(questionHash)) {
+            // Same question twice in one deck: flush so the lookups see the first copy
+            flush();
+        }
+        boolean newQuestion = deckQuestions.add(questionHash);
+        batched.add(questionHash);
+        long existing = findCard(hash, question, answer);
+        if (existing == 0) {
+            return;
+        }
+        if (existing < 0 && newQuestion) {
+            existing = findOnlyCardWithQuestion(questionHash);
+        }
+        if (existing > 0) {
+            updateCard.setString(1, question);
+            updateCard.setString(2, answer);
+            updateCard.setLong(3, hash);
+            updateCard.setLong(4, existing);
+            updateCard.addBatch();
+            updated++;
+        } else {
+            insertCard.setLong(1, deckId);
+            insertCard.setString(2, question);
+            insertCard.setString(3, answer);
+            insertCard.setLong(4, hash);
+            insertCard.setLong(5, questionHash);
+            insertCard.addBatch();
+            inserted++;
+        }
+        if (++pending % batchSize == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns 0 and counts a skip if the open deck has this exact card, the id of a card that
+     * differs only in case or spacing, or -1 if there is none.
+     */
+    private long findCard(long hash, String question, String answer) throws SQLException {
+        findCard.setLong(1, deckId);
+        findCard.setLong(2, hash);
+        long similar = -1;
+        // Repeats kept from before the hash covered answers can share it, so look for the exact one
+        try (ResultSet rs = findCard.executeQuery()) {
+            while (rs.next()) {
+                if (question.equals(rs.getString(2)) && answer.equals(rs.getString(3))) {
+                    skipped++;
+                    return 0;
+                }
+                if (similar < 0) {
+                    similar = rs.getLong(1);
+                }
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Returns the id of the open deck's card with this question if there is exactly one, else -1.
+     */
+    private long findOnlyCardWithQuestion(long questionHash) throws SQLException {
+        findQuestion.setLong(1, deckId);
+        findQuestion.setLong(2, questionHash);
+        try (ResultSet rs = findQuestion.executeQuery()) {
+            long id = rs.next() ? rs.getLong(1) : -1;
+            return rs.next() ? -1 : id;
+        }
+    }
+
+    private void flush() throws SQLException {
+        insertCard.executeBatch();
+        updateCard.executeBatch();
+        batched.clear();
+    }
+
+    @SneakyThrows
+    public void endDeck() {
+        flush();
+        connection.releaseSavepoint(savepoint);
+        result.setImportedDecks(result.getImportedDecks() + 1);
+        result.setImportedCards(result.getImportedCards() + inserted + updated + skipped);
+        result.setInsertedCards(result.getInsertedCards() + inserted);
+        result.setUpdatedCards(result.getUpdatedCards() + updated);
+        result.setSkippedCards(result.getSkippedCards() + skipped);
+        uncommitted += pending;
+        deckName = null;
+        if (uncommitted >= batchSize) {
+            connection.commit();
+            uncommitted = 0;
+        }
+    }
+
+    /**
+     * Deletes the deck with the given name together with its cards, if it exists.
+     * Used to apply deltas, so deleting a missing deck is not an error.
+     */
+    @SneakyThrows
+    public boolean deleteDeck(String name) {
+        if (deckName != null) {
+            throw new IllegalStateException("Deck " + deckName + " is still open");
+        }
+        PreparedStatement delete = pooled.prepare("DELETE FROM decks WHERE name = ?");
+        delete.setString(1, name);
+        boolean deleted = delete.executeUpdate() > 0;
+        if (deleted) {
+            result.setDeletedDecks(result.getDeletedDecks() + 1);
+        }
+        commitIfDue();
+        return deleted;
+    }
+
+    /**
+     * Deletes the card with the given question and answer, matched like imported cards, from the
+     * named deck if both exist. Without an answer every card with the question is deleted.
+     */
+    @SneakyThrows
+    public boolean deleteCard(String deck, String question, String answer) {
+        if (deckName != null) {
+            throw new IllegalStateException("Deck " + deckName + " is still open");
+        }
+        PreparedStatement delete = pooled.prepare(answer != null
+                ? "DELETE FROM cards WHERE deck_id = (SELECT id FROM decks WHERE name = ?) AND content_hash = ?"
+                : "DELETE FROM cards WHERE deck_id = (SELECT id FROM decks WHERE name = ?) AND question_hash = ?");
+        delete.setString(1, deck);
+        delete.setLong(2, answer != null ? ContentHash.of(question, answer) : ContentHash.ofQuestion(question));
+        boolean deleted = delete.executeUpdate() > 0;
+        if (deleted) {
+            result.setDeletedCards(result.getDeletedCards() + 1);
+        }
+        commitIfDue();
+        return deleted;
+    }
+
+    private void commitIfDue() throws SQLException {
+        if (++uncommitted >= batchSize) {
+            connection.commit();
+            uncommitted = 0;
+        }
+    }
+
+    /**
+     * Rolls back everything written for the currently open deck and records the failure.
+     */
+    @SneakyThrows
+    public void abortDeck(String name, Exception cause) {
+        insertCard.clearBatch();
+        updateCard.clearBatch();
+        batched.clear();
+        if (savepoint != null && deckName != null) {
+            connection.rollback(savepoint);
+        }
+        result.getFailures().put(name, cause.getMessage());
+        deckName = null;
+    }
+
+    @SneakyThrows
+    public ImportResult finish() {
+        if (deckName != null) {
+            throw new IllegalStateException("Deck " + deckName + " is still open");
+        }
+        connection.commit();
+        finished = true;
+        return result;
+    }
+
+    /**
+     * Rolls back any uncommitted work if finish was not reached, restores auto-commit
+     * and returns the connection to the pool.
+     */
+    @Override
+    @SneakyThrows
+    public void close() {
+        try {
+            if (!finished) {
+                insertCard.clearBatch();
+                updateCard.clearBatch();
+                connection.rollback();
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+
+    private long findOrCreateDeckId(String name) throws SQLException {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Deck name cannot be empty");
+        }
+        PreparedStatement select = pooled.prepare("SELECT id FROM decks WHERE name = ?");
+        select.setString(1, name);
+        try (ResultSet rs = select.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        PreparedStatement insert = pooled.prepareReturningKeys("INSERT INTO decks (name) VALUES (?)");
+        insert.setString(1, name);
+        insert.executeUpdate();
+        try (ResultSet rs = insert.getGeneratedKeys()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        }
+        throw new SQLException("Creating deck failed, no ID obtained.");
+    }
+}
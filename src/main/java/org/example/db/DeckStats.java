@@ -0,0 +1,21 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Review totals of one deck, read from the deck_daily_stats rollup.
+ */
+@Value
+public class DeckStats {
+    long deckId;
+    String name;
+    long reviews;
+    long correct;
+
+    /**
+     * Share of correct answers between 0 and 1, or 0 for a deck never reviewed.
+     */
+    public double getAccuracy() {
+        return reviews == 0 ? 0 : (double) correct / reviews;
+    }
+}
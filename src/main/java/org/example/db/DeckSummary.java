@@ -0,0 +1,13 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Lightweight view of a deck for listings: id, name and number of cards, no card data.
+ */
+@Value
+public class DeckSummary {
+    long id;
+    String name;
+    int cardCount;
+}
@@ -0,0 +1,15 @@
+package org.example.db;
+
+import org.example.enteties.Card;
+
+/**
+ * Callback for {@link DatabaseManager#forEachDeck}. Decks arrive in id order,
+ * each followed by its cards in id order.
+ */
+public interface DeckVisitor {
+    void beginDeck(long id, String name) throws Exception;
+
+    void card(Card card) throws Exception;
+
+    void endDeck() throws Exception;
+}
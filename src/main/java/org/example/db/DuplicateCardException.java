@@ -0,0 +1,19 @@
+package org.example.db;
+
+import lombok.Getter;
+
+/**
+ * A card write was refused because the deck already has another card with the same question
+ * and answer, ignoring case and spacing.
+ */
+@Getter
+public class DuplicateCardException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long existingCardId;
+
+    public DuplicateCardException(long existingCardId) {
+        super("The deck already has this card (card " + existingCardId + ")");
+        this.existingCardId = existingCardId;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.db;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of a bulk import run.
+ * importedCards counts every card of the successful decks, split into cards inserted,
+ * updated because their text changed and skipped because they were already present.
+ * Applied deltas also count the decks and cards they deleted.
+ * Failed decks are rolled back and reported by name together with the error message.
+ * Line-oriented imports also report rejected rows: all of them are counted, and the first
+ * {@link #MAX_REPORTED_ROWS} are kept by line number together with the reason.
+ */
+@Data
+public class ImportResult {
+    public static final int MAX_REPORTED_ROWS = 1000;
+
+    private int importedDecks;
+    private int importedCards;
+    private int insertedCards;
+    private int updatedCards;
+    private int skippedCards;
+    private int deletedDecks;
+    private int deletedCards;
+    private Map<String, String> failures = new LinkedHashMap<>();
+    private int badRowCount;
+    private Map<Long, String> badRows = new LinkedHashMap<>();
+
+    public void addBadRow(long line, String message) {
+        if (badRows.size() < MAX_REPORTED_ROWS) {
+            badRows.put(line, message);
+        }
+        badRowCount++;
+    }
+}
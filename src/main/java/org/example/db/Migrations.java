@@ -0,0 +1,229 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned schema migrations tracked in SQLite's {@code PRAGMA user_version}.
+ * Migration N (1-based position in {@link #STEPS}) runs once, when user_version is below N.
+ * New schema changes are appended as new steps; existing steps are never edited.
+ */
+final class Migrations {
+    private static final List<String[]> STEPS = List.of(
+            // 1: base schema
+            new String[]{
+                    "CREATE TABLE IF NOT EXISTS decks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS cards (id INTEGER PRIMARY KEY AUTOINCREMENT, deck_id INTEGER, question TEXT NOT NULL, answer TEXT NOT NULL, FOREIGN KEY(deck_id) REFERENCES decks(id) ON DELETE CASCADE)"
+            },
+            // 2: drop cards orphaned while foreign keys were not enforced, index cards by deck
+            new String[]{
+                    "DELETE FROM cards WHERE deck_id IS NULL OR deck_id NOT IN (SELECT id FROM decks)",
+                    "CREATE INDEX IF NOT EXISTS idx_cards_deck_id ON cards(deck_id)"
+            },
+            // 3: spaced-repetition state per card, created for every new card by trigger
+            new String[]{
+                    "CREATE TABLE IF NOT EXISTS card_schedule (card_id INTEGER PRIMARY KEY REFERENCES cards(id) ON DELETE CASCADE, deck_id INTEGER NOT NULL, interval_days INTEGER NOT NULL DEFAULT 0, ease REAL NOT NULL DEFAULT 2.5, repetitions INTEGER NOT NULL DEFAULT 0, due_at INTEGER NOT NULL DEFAULT 0)",
+                    "CREATE INDEX IF NOT EXISTS idx_card_schedule_due ON card_schedule(deck_id, due_at)",
+                    "INSERT OR IGNORE INTO card_schedule (card_id, deck_id) SELECT id, deck_id FROM cards WHERE deck_id IS NOT NULL",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_schedule AFTER INSERT ON cards WHEN NEW.deck_id IS NOT NULL BEGIN "
+                            + "INSERT OR IGNORE INTO card_schedule (card_id, deck_id) VALUES (NEW.id, NEW.deck_id); END"
+            },
+            // 4: full-text index over question and answer, kept in sync with cards by triggers
+            new String[]{
+                    "CREATE VIRTUAL TABLE IF NOT EXISTS cards_fts USING fts5(question, answer, content='cards', content_rowid='id')",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_fts_insert AFTER INSERT ON cards BEGIN "
+                            + "INSERT INTO cards_fts (rowid, question, answer) VALUES (NEW.id, NEW.question, NEW.answer); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_fts_delete AFTER DELETE ON cards BEGIN "
+                            + "INSERT INTO cards_fts (cards_fts, rowid, question, answer) VALUES ('delete', OLD.id, OLD.question, OLD.answer); END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_fts_update AFTER UPDATE OF question, answer ON cards BEGIN "
+                            + "INSERT INTO cards_fts (cards_fts, rowid, question, answer) VALUES ('delete', OLD.id, OLD.question, OLD.answer); "
+                            + "INSERT INTO cards_fts (rowid, question, answer) VALUES (NEW.id, NEW.question, NEW.answer); END",
+                    "INSERT INTO cards_fts (cards_fts) VALUES ('rebuild')"
+            },
+            // 5: log of graded answers
+            new String[]{
+                    "CREATE TABLE IF NOT EXISTS review_log (id INTEGER PRIMARY KEY AUTOINCREMENT, card_id INTEGER NOT NULL REFERENCES cards(id) ON DELETE CASCADE, deck_id INTEGER NOT NULL, grade INTEGER NOT NULL, correct INTEGER NOT NULL, reviewed_at INTEGER NOT NULL)",
+                    "CREATE INDEX IF NOT EXISTS idx_review_log_card ON review_log(card_id)"
+            },
+            // 6: content hash per card, filled in by step 11
+            new String[]{
+                    "ALTER TABLE cards ADD COLUMN content_hash INTEGER"
+            },
+            // 7: change sequence on decks and cards plus tombstones for deletes, maintained by triggers.
+            // Existing rows count as change 1, so a delta since 0 is a full export
+            new String[]{
+                    "CREATE TABLE IF NOT EXISTS change_counter (id INTEGER PRIMARY KEY CHECK (id = 1), seq INTEGER NOT NULL)",
+                    "INSERT INTO change_counter (id, seq) VALUES (1, 1)",
+                    "CREATE TABLE IF NOT EXISTS change_tombstones (seq INTEGER PRIMARY KEY, kind TEXT NOT NULL, deck_name TEXT NOT NULL, question TEXT, content_hash INTEGER)",
+                    "ALTER TABLE decks ADD COLUMN change_seq INTEGER NOT NULL DEFAULT 1",
+                    "ALTER TABLE cards ADD COLUMN change_seq INTEGER NOT NULL DEFAULT 1",
+                    "CREATE INDEX IF NOT EXISTS idx_decks_change_seq ON decks(change_seq)",
+                    "CREATE INDEX IF NOT EXISTS idx_cards_change_seq ON cards(change_seq)",
+                    "CREATE TRIGGER IF NOT EXISTS trg_decks_change_insert AFTER INSERT ON decks BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "UPDATE decks SET change_seq = (SELECT seq FROM change_counter) WHERE id = NEW.id; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_decks_change_update AFTER UPDATE OF name ON decks BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "UPDATE decks SET change_seq = (SELECT seq FROM change_counter) WHERE id = NEW.id; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_decks_change_delete AFTER DELETE ON decks BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "INSERT INTO change_tombstones (seq, kind, deck_name) SELECT seq, 'deck', OLD.name FROM change_counter; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_change_insert AFTER INSERT ON cards BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "UPDATE cards SET change_seq = (SELECT seq FROM change_counter) WHERE id = NEW.id; END",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_change_update AFTER UPDATE OF question, answer, deck_id ON cards BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "UPDATE cards SET change_seq = (SELECT seq FROM change_counter) WHERE id = NEW.id; END",
+                    // Cards removed together with their deck are covered by the deck's tombstone
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_change_delete AFTER DELETE ON cards "
+                            + "WHEN EXISTS (SELECT 1 FROM decks WHERE id = OLD.deck_id) BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "INSERT INTO change_tombstones (seq, kind, deck_name, question, content_hash) "
+                            + "SELECT c.seq, 'card', d.name, OLD.question, OLD.content_hash FROM change_counter c, decks d WHERE d.id = OLD.deck_id; END",
+                    // A card whose question changed is, to another database, a new card, so the old one gets a tombstone
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_change_rekey AFTER UPDATE OF deck_id, content_hash ON cards "
+                            + "WHEN OLD.deck_id IS NOT NEW.deck_id OR OLD.content_hash IS NOT NEW.content_hash BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "INSERT INTO change_tombstones (seq, kind, deck_name, question, content_hash) "
+                            + "SELECT c.seq, 'card', d.name, OLD.question, OLD.content_hash FROM change_counter c, decks d WHERE d.id = OLD.deck_id; END"
+            },
+            // 8: weak-cards-first study sessions page through a deck by ease
+            new String[]{
+                    "CREATE INDEX IF NOT EXISTS idx_card_schedule_ease ON card_schedule(deck_id, ease, card_id)"
+            },
+            // 9: review rollups per card and per deck and UTC day, kept up to date by saveReviews
+            new String[]{
+                    "CREATE TABLE IF NOT EXISTS card_stats (card_id INTEGER PRIMARY KEY REFERENCES cards(id) ON DELETE CASCADE, reviews INTEGER NOT NULL, correct INTEGER NOT NULL, last_reviewed_at INTEGER NOT NULL)",
+                    "CREATE TABLE IF NOT EXISTS deck_daily_stats (deck_id INTEGER NOT NULL REFERENCES decks(id) ON DELETE CASCADE, day INTEGER NOT NULL, reviews INTEGER NOT NULL, correct INTEGER NOT NULL, PRIMARY KEY (deck_id, day)) WITHOUT ROWID",
+                    "INSERT INTO card_stats (card_id, reviews, correct, last_reviewed_at) "
+                            + "SELECT card_id, COUNT(*), SUM(correct), MAX(reviewed_at) FROM review_log GROUP BY card_id",
+                    "INSERT INTO deck_daily_stats (deck_id, day, reviews, correct) "
+                            + "SELECT deck_id, reviewed_at / 86400000, COUNT(*), SUM(correct) FROM review_log "
+                            + "WHERE deck_id IN (SELECT id FROM decks) GROUP BY deck_id, reviewed_at / 86400000"
+            },
+            // 10: card_schedule keeps a copy of deck_id for its due index, so it follows cards that move
+            new String[]{
+                    "UPDATE card_schedule SET deck_id = (SELECT c.deck_id FROM cards c WHERE c.id = card_schedule.card_id) "
+                            + "WHERE deck_id IS NOT (SELECT c.deck_id FROM cards c WHERE c.id = card_schedule.card_id) "
+                            + "AND (SELECT c.deck_id FROM cards c WHERE c.id = card_schedule.card_id) IS NOT NULL",
+                    "CREATE TRIGGER IF NOT EXISTS trg_cards_schedule_move AFTER UPDATE OF deck_id ON cards "
+                            + "WHEN NEW.deck_id IS NOT NULL AND OLD.deck_id IS NOT NEW.deck_id BEGIN "
+                            + "UPDATE card_schedule SET deck_id = NEW.deck_id WHERE card_id = NEW.id; "
+                            + "INSERT OR IGNORE INTO card_schedule (card_id, deck_id) VALUES (NEW.id, NEW.deck_id); END"
+            },
+            // 11: the content hash covers question and answer, a separate question hash finds the card a
+            // re-import updates, and card tombstones carry the answer; hashCards fills both hashes in.
+            // Neither index is unique, so cards that already repeat each other are kept
+            new String[]{
+                    "DROP INDEX IF EXISTS idx_cards_deck_hash",
+                    "ALTER TABLE cards ADD COLUMN question_hash INTEGER",
+                    "ALTER TABLE change_tombstones ADD COLUMN answer TEXT",
+                    "DROP TRIGGER IF EXISTS trg_cards_change_delete",
+                    "CREATE TRIGGER trg_cards_change_delete AFTER DELETE ON cards "
+                            + "WHEN EXISTS (SELECT 1 FROM decks WHERE id = OLD.deck_id) BEGIN "
+                            + "UPDATE change_counter SET seq = seq + 1; "
+                            + "INSERT INTO change_tombstones (seq, kind, deck_name, question, answer, content_hash) "
+                            + "SELECT c.seq, 'card', d.name, OLD.question, OLD.answer, OLD.content_hash FROM change_counter c, decks d WHERE d.id = OLD.deck_id; END",
+                    // Recreated by hashCards once the backfill is done, so rehashing leaves no tombstones
+                    "DROP TRIGGER IF EXISTS trg_cards_change_rekey"
+            }
+    );
+
+    /**
+     * Steps that need Java code, run after the SQL of the migration with the same number.
+     */
+    private static final Map<Integer, CodeStep> CODE_STEPS = Map.of(11, Migrations::hashCards);
+
+    @FunctionalInterface
+    private interface CodeStep {
+        void run(Connection connection) throws SQLException;
+    }
+
+    private Migrations() {
+    }
+
+    static int latestVersion() {
+        return STEPS.size();
+    }
+
+    static int currentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Applies all pending steps in a single transaction and returns the resulting version.
+     */
+    static int migrate(Connection connection) throws SQLException {
+        int version = currentVersion(connection);
+        if (version >= STEPS.size()) {
+            return version;
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            for (int i = version; i < STEPS.size(); i++) {
+                for (String sql : STEPS.get(i)) {
+                    stmt.execute(sql);
+                }
+                CodeStep code = CODE_STEPS.get(i + 1);
+                if (code != null) {
+                    code.run(connection);
+                }
+            }
+            stmt.execute("PRAGMA user_version = " + STEPS.size());
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return STEPS.size();
+    }
+
+    /**
+     * Backfills both {@link ContentHash} columns for every card, then indexes them by deck and
+     * restores the tombstone trigger for changed hashes. Only hashes are written: cards that turn
+     * out to repeat each other are left as they are.
+     */
+    private static void hashCards(Connection connection) throws SQLException {
+        // Read in keyset chunks so that no SELECT is open on cards while its rows are updated
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, question, answer FROM cards WHERE id > ? ORDER BY id LIMIT ?");
+             PreparedStatement update = connection.prepareStatement("UPDATE cards SET content_hash = ?, question_hash = ? WHERE id = ?")) {
+            long lastId = 0;
+            int chunk;
+            do {
+                chunk = 0;
+                select.setLong(1, lastId);
+                select.setInt(2, DatabaseManager.DEFAULT_BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        update.setLong(1, ContentHash.of(rs.getString(2), rs.getString(3)));
+                        update.setLong(2, ContentHash.ofQuestion(rs.getString(2)));
+                        update.setLong(3, lastId);
+                        update.addBatch();
+                        chunk++;
+                    }
+                }
+                update.executeBatch();
+            } while (chunk == DatabaseManager.DEFAULT_BATCH_SIZE);
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_cards_deck_hash ON cards(deck_id, content_hash)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_cards_deck_question ON cards(deck_id, question_hash)");
+            stmt.execute("CREATE TRIGGER trg_cards_change_rekey AFTER UPDATE OF deck_id, content_hash ON cards "
+                    + "WHEN OLD.deck_id IS NOT NEW.deck_id OR OLD.content_hash IS NOT NEW.content_hash BEGIN "
+                    + "UPDATE change_counter SET seq = seq + 1; "
+                    + "INSERT INTO change_tombstones (seq, kind, deck_name, question, answer, content_hash) "
+                    + "SELECT c.seq, 'card', d.name, OLD.question, OLD.answer, OLD.content_hash FROM change_counter c, decks d WHERE d.id = OLD.deck_id; END");
+        }
+    }
+}
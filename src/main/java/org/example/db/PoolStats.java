@@ -0,0 +1,23 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Contention counters of the connection pool: how many leases had to wait for the write lock or
+ * for a free reader, and the total time they waited, in nanoseconds.
+ */
+@Value
+public class PoolStats {
+    long writeWaits;
+    long writeWaitNanos;
+    long readWaits;
+    long readWaitNanos;
+
+    /**
+     * Waits that happened between an earlier snapshot and this one.
+     */
+    public PoolStats minus(PoolStats earlier) {
+        return new PoolStats(writeWaits - earlier.writeWaits, writeWaitNanos - earlier.writeWaitNanos,
+                readWaits - earlier.readWaits, readWaitNanos - earlier.readWaitNanos);
+    }
+}
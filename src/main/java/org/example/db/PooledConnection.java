@@ -0,0 +1,63 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQLite connection handed out by {@link ConnectionPool} together with its prepared-statement cache.
+ * A pooled connection is only ever used by the thread that leased it, so the cache needs no locking.
+ * Cached statements are owned by the connection: callers close their ResultSets but never the statements.
+ */
+public class PooledConnection {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final Map<String, PreparedStatement> keyStatements = new HashMap<>();
+
+    PooledConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql);
+            statements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    /**
+     * Same as {@link #prepare(String)} for statements whose generated keys are read back.
+     */
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        PreparedStatement ps = keyStatements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            keyStatements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    void close() throws SQLException {
+        try {
+            for (PreparedStatement ps : statements.values()) {
+                ps.close();
+            }
+            for (PreparedStatement ps : keyStatements.values()) {
+                ps.close();
+            }
+        } finally {
+            statements.clear();
+            keyStatements.clear();
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.db;
+
+import lombok.Value;
+
+/**
+ * Card returned by a full-text search, together with the deck it belongs to.
+ */
+@Value
+public class SearchHit {
+    long cardId;
+    long deckId;
+    String question;
+    String answer;
+}
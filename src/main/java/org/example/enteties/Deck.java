@@ -1,13 +1,38 @@
 package org.example.enteties;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 @Data
 public class Deck {
     private long id;
     private String name;
-    private List<Card> cards = new ArrayList<>();
+    /**
+     * Left out of equals, hashCode and toString, which would otherwise go through
+     * {@link #getCards()} and query the database for a lazily loaded deck.
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private List<Card> cards;
+
+    /**
+     * Fetches the cards on first access when the deck was loaded without them.
+     * Transient so that Gson never serializes it.
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient Supplier<List<Card>> cardLoader;
+
+    public List<Card> getCards() {
+        if (cards == null) {
+            cards = cardLoader != null ? cardLoader.get() : new ArrayList<>();
+            cardLoader = null;
+        }
+        return cards;
+    }
 }
@@ -0,0 +1,24 @@
+package org.example.enteties;
+
+import lombok.Value;
+
+/**
+ * One graded answer together with the card's schedule after grading. Times are epoch milliseconds.
+ */
+@Value
+public class Review {
+    long cardId;
+    long deckId;
+    int grade;
+    boolean correct;
+    long reviewedAt;
+    int intervalDays;
+    double ease;
+    int repetitions;
+    long dueAt;
+
+    public static Review of(ScheduledCard card, int grade, long reviewedAt) {
+        return new Review(card.getCardId(), card.getDeckId(), grade, grade >= 3, reviewedAt,
+                card.getIntervalDays(), card.getEase(), card.getRepetitions(), card.getDueAt());
+    }
+}
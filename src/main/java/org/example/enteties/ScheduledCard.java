@@ -0,0 +1,18 @@
+package org.example.enteties;
+
+import lombok.Data;
+
+/**
+ * Card together with its spaced-repetition state. dueAt is epoch milliseconds.
+ */
+@Data
+public class ScheduledCard {
+    private long cardId;
+    private long deckId;
+    private String question;
+    private String answer;
+    private int intervalDays;
+    private double ease;
+    private int repetitions;
+    private long dueAt;
+}
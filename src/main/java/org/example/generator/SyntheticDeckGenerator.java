@@ -0,0 +1,161 @@
+package org.example.generator;
+
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.enteties.Card;
+import org.example.enteties.Deck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of synthetic decks for benchmarks and load tests.
+ * Words are drawn from a fixed vocabulary with a skewed (roughly Zipfian) distribution so that
+ * text looks like natural language to the full-text index and answer caches. The skew is the
+ * exponent applied to a uniform pick: 1 uses the vocabulary evenly, larger values concentrate
+ * on the first words. Every generated question ends with its card number, so no two cards repeat
+ * a question and importers never drop one as a duplicate. The same seed always produces the same decks.
+ */
+public class SyntheticDeckGenerator {
+    public static final double DEFAULT_SKEW = 2;
+    private static final String[] VOCABULARY = buildVocabulary(4096);
+
+    private final long seed;
+    private final int cardsPerDeck;
+    private final int minQuestionWords;
+    private final int maxQuestionWords;
+    private final int minAnswerWords;
+    private final int maxAnswerWords;
+    private final double skew;
+
+    public SyntheticDeckGenerator(long seed, int cardsPerDeck) {
+        this(seed, cardsPerDeck, 4, 12, 1, 3);
+    }
+
+    public SyntheticDeckGenerator(long seed, int cardsPerDeck, int minQuestionWords, int maxQuestionWords,
+                                  int minAnswerWords, int maxAnswerWords) {
+        this(seed, cardsPerDeck, minQuestionWords, maxQuestionWords, minAnswerWords, maxAnswerWords, DEFAULT_SKEW);
+    }
+
+    public SyntheticDeckGenerator(long seed, int cardsPerDeck, int minQuestionWords, int maxQuestionWords,
+                                  int minAnswerWords, int maxAnswerWords, double skew) {
+        if (cardsPerDeck <= 0) {
+            throw new IllegalArgumentException("Cards per deck must be positive");
+        }
+        if (minQuestionWords <= 0 || maxQuestionWords < minQuestionWords || minAnswerWords <= 0 || maxAnswerWords < minAnswerWords) {
+            throw new IllegalArgumentException("Invalid word count range");
+        }
+        if (!(skew >= 1)) {
+            throw new IllegalArgumentException("Skew must be at least 1");
+        }
+        this.seed = seed;
+        this.cardsPerDeck = cardsPerDeck;
+        this.minQuestionWords = minQuestionWords;
+        this.maxQuestionWords = maxQuestionWords;
+        this.minAnswerWords = minAnswerWords;
+        this.maxAnswerWords = maxAnswerWords;
+        this.skew = skew;
+    }
+
+    /**
+     * Builds totalCards cards split into decks named "Synthetic 1", "Synthetic 2", ...
+     */
+    public List<Deck> decks(int totalCards) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Deck> decks = new ArrayList<>();
+        Deck deck = null;
+        for (int i = 0; i < totalCards; i++) {
+            if (i % cardsPerDeck == 0) {
+                deck = new Deck();
+                deck.setId(decks.size() + 1);
+                deck.setName(deckName(decks.size() + 1));
+                deck.setCards(new ArrayList<>(Math.min(cardsPerDeck, totalCards - i)));
+                decks.add(deck);
+            }
+            Card card = new Card();
+            card.setId(i + 1);
+            card.setQuestion(question(random, i + 1));
+            card.setAnswer(answer(random));
+            deck.getCards().add(card);
+        }
+        return decks;
+    }
+
+    /**
+     * Streams totalCards cards straight into the database without building them in memory first.
+     */
+    public void populate(DatabaseManager db, int totalCards) {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+            int deckNumber = 0;
+            for (int i = 0; i < totalCards; i++) {
+                if (i % cardsPerDeck == 0) {
+                    if (importer.isDeckOpen()) {
+                        importer.endDeck();
+                    }
+                    importer.beginDeck(deckName(++deckNumber));
+                }
+                importer.addCard(question(random, i + 1), answer(random));
+            }
+            if (importer.isDeckOpen()) {
+                importer.endDeck();
+            }
+            importer.finish();
+        }
+    }
+
+    public static String deckName(int number) {
+        return "Synthetic " + number;
+    }
+
+    public String question(SplittableRandom random) {
+        return sentence(random, minQuestionWords, maxQuestionWords) + "?";
+    }
+
+    private String question(SplittableRandom random, int number) {
+        return sentence(random, minQuestionWords, maxQuestionWords) + " #" + number + "?";
+    }
+
+    public String answer(SplittableRandom random) {
+        return sentence(random, minAnswerWords, maxAnswerWords);
+    }
+
+    private String sentence(SplittableRandom random, int minWords, int maxWords) {
+        int words = random.nextInt(minWords, maxWords + 1);
+        StringBuilder text = new StringBuilder(words * 8);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                text.append(' ');
+            }
+            text.append(word(random));
+        }
+        return text.toString();
+    }
+
+    /**
+     * One word of the vocabulary, drawn with this generator's skew.
+     */
+    public String word(SplittableRandom random) {
+        // Raising a uniform value to a power skews picks towards the start of the vocabulary
+        double u = random.nextDouble();
+        return VOCABULARY[(int) (Math.pow(u, skew) * VOCABULARY.length)];
+    }
+
+    private static String[] buildVocabulary(int size) {
+        String consonants = "bcdfghklmnprstvz";
+        String vowels = "aeiou";
+        SplittableRandom random = new SplittableRandom(42);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            int syllables = 1 + random.nextInt(3);
+            StringBuilder word = new StringBuilder();
+            for (int s = 0; s < syllables; s++) {
+                word.append(consonants.charAt(random.nextInt(consonants.length())));
+                word.append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.json;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table of contents of a {@link DeckBundle}, stored as manifest.json next to the deck entries.
+ * Sizes are in bytes; the checksum is the CRC32C of the compressed entry file.
+ */
+@Data
+public class BundleManifest {
+    public static final int FORMAT_VERSION = 1;
+
+    private int version = FORMAT_VERSION;
+    private List<Entry> decks = new ArrayList<>();
+
+    @Data
+    public static class Entry {
+        private String file;
+        private String name;
+        private int cards;
+        private long bytes;
+        private long rawBytes;
+        private long crc32c;
+    }
+
+    public long getTotalBytes() {
+        return decks.stream().mapToLong(Entry::getBytes).sum();
+    }
+
+    public long getTotalRawBytes() {
+        return decks.stream().mapToLong(Entry::getRawBytes).sum();
+    }
+}
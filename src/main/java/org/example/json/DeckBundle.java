@@ -0,0 +1,264 @@
+package org.example.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
+import org.example.enteties.Card;
+import org.example.enteties.Deck;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export as a directory of gzip-compressed decks: every deck is its own entry, deck-NNNNNN.json.gz
+ * by deck id, holding the one-deck array layout of {@link JsonManager#exportDecksStreaming}, so an
+ * entry can also be unpacked and imported on its own. Entries are written in parallel on a fixed
+ * pool: each reads its deck into an uncompressed JSON buffer, holding a reader connection only
+ * while the rows are read, and compresses the buffer after the lease is returned, so entries
+ * overlap even with fewer readers than threads. {@link BundleManifest} is written last, so a directory without a manifest is an unfinished
+ * export. Importing decompresses, verifies and parses entries in parallel, a bounded number
+ * ahead of the single database writer, which applies them in manifest order. Files not listed
+ * in the manifest are ignored.
+ */
+public final class DeckBundle {
+    public static final String MANIFEST = "manifest.json";
+
+    private static final Gson gson = new Gson();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DeckBundle() {
+    }
+
+    public static boolean isBundle(Path dir) {
+        return Files.isRegularFile(dir.resolve(MANIFEST));
+    }
+
+    public static BundleManifest write(DatabaseManager db, Path dir) throws IOException {
+        return write(db, dir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Exports every deck into dir, creating it if needed, and returns the manifest.
+     * A manifest left by an earlier export is removed first.
+     */
+    public static BundleManifest write(DatabaseManager db, Path dir, int parallelism) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        OperationMetrics metrics = Metrics.operation("bundle.write");
+        long start = System.nanoTime();
+        boolean failed = true;
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(MANIFEST));
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<CompletableFuture<BundleManifest.Entry>> futures = new ArrayList<>();
+            for (DeckSummary deck : db.getDeckSummaries()) {
+                futures.add(CompletableFuture.supplyAsync(() -> writeEntry(db, dir, deck), pool));
+            }
+            BundleManifest manifest = new BundleManifest();
+            for (CompletableFuture<BundleManifest.Entry> future : futures) {
+                manifest.getDecks().add(join(future));
+            }
+            Path temp = dir.resolve(MANIFEST + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(manifest, writer);
+            }
+            Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            failed = false;
+            return manifest;
+        } finally {
+            pool.shutdownNow();
+            metrics.record(start, failed);
+        }
+    }
+
+    private static BundleManifest.Entry writeEntry(DatabaseManager db, Path dir, DeckSummary deck) {
+        String file = String.format(Locale.ROOT, "deck-%06d.json.gz", deck.getId());
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(BUFFER_SIZE);
+        int cards = 0;
+        try (Stream<Card> stream = db.streamCards(deck.getId())) {
+            JsonWriter writer = new JsonWriter(new OutputStreamWriter(raw, StandardCharsets.UTF_8));
+            writer.beginArray();
+            writer.beginObject();
+            writer.name("id").value(deck.getId());
+            writer.name("name").value(deck.getName());
+            writer.name("cards").beginArray();
+            for (Card card : (Iterable<Card>) stream::iterator) {
+                writer.beginObject();
+                writer.name("id").value(card.getId());
+                writer.name("question").value(card.getQuestion());
+                writer.name("answer").value(card.getAnswer());
+                writer.endObject();
+                cards++;
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.endArray();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32C crc = new CRC32C();
+        try (OutputStream fileOut = Files.newOutputStream(dir.resolve(file));
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE), crc);
+             GZIPOutputStream gzip = new GZIPOutputStream(checked, BUFFER_SIZE)) {
+            raw.writeTo(gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        BundleManifest.Entry entry = new BundleManifest.Entry();
+        entry.setFile(file);
+        entry.setName(deck.getName());
+        entry.setCards(cards);
+        entry.setRawBytes(raw.size());
+        entry.setCrc32c(crc.getValue());
+        try {
+            entry.setBytes(Files.size(dir.resolve(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entry;
+    }
+
+    public static ImportResult read(DatabaseManager db, Path dir) throws IOException {
+        return read(db, dir, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Imports every deck listed in the manifest, merged like any other import. An entry that is
+     * missing, fails its checksum or cannot be parsed is reported as a failed deck and the rest
+     * of the bundle is still imported. Throws if the manifest itself cannot be read.
+     */
+    public static ImportResult read(DatabaseManager db, Path dir, int parallelism) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        OperationMetrics metrics = Metrics.operation("bundle.read");
+        long start = System.nanoTime();
+        boolean failed = true;
+        BundleManifest manifest;
+        try (Reader reader = Files.newBufferedReader(dir.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+            manifest = gson.fromJson(reader, BundleManifest.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed manifest: " + e.getMessage(), e);
+        }
+        if (manifest == null || manifest.getVersion() != BundleManifest.FORMAT_VERSION) {
+            throw new IOException("Unsupported bundle manifest in " + dir);
+        }
+        List<BundleManifest.Entry> entries = manifest.getDecks();
+        // Parsed decks wait for the writer in memory, so only a few are read ahead of it
+        int window = parallelism * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        List<CompletableFuture<List<Deck>>> futures = new ArrayList<>();
+        try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+            for (int i = 0; i < entries.size(); i++) {
+                while (futures.size() < entries.size() && futures.size() <= i + window) {
+                    BundleManifest.Entry entry = entries.get(futures.size());
+                    futures.add(CompletableFuture.supplyAsync(() -> readEntry(dir, entry), pool));
+                }
+                BundleManifest.Entry entry = entries.get(i);
+                List<Deck> decks;
+                try {
+                    decks = join(futures.get(i));
+                } catch (IOException | RuntimeException e) {
+                    importer.abortDeck(entry.getName(), e);
+                    continue;
+                } finally {
+                    futures.set(i, null);
+                }
+                for (Deck deck : decks) {
+                    writeDeck(importer, deck);
+                }
+            }
+            ImportResult result = importer.finish();
+            failed = false;
+            return result;
+        } finally {
+            pool.shutdownNow();
+            metrics.record(start, failed);
+        }
+    }
+
+    private static List<Deck> readEntry(Path dir, BundleManifest.Entry entry) {
+        try {
+            Path file = dir.resolve(entry.getFile()).normalize();
+            if (!dir.normalize().equals(file.getParent())) {
+                throw new IOException("Entry " + entry.getFile() + " is outside the bundle");
+            }
+            byte[] compressed = Files.readAllBytes(file);
+            CRC32C crc = new CRC32C();
+            crc.update(compressed);
+            if (compressed.length != entry.getBytes() || crc.getValue() != entry.getCrc32c()) {
+                throw new IOException("Checksum mismatch in " + entry.getFile());
+            }
+            try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed), BUFFER_SIZE),
+                    StandardCharsets.UTF_8)) {
+                List<Deck> decks = gson.fromJson(reader, new TypeToken<List<Deck>>() {}.getType());
+                if (decks == null) {
+                    throw new IOException("Empty entry " + entry.getFile());
+                }
+                return decks;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeDeck(DeckImporter importer, Deck deck) {
+        try {
+            importer.beginDeck(deck.getName());
+            for (Card card : deck.getCards()) {
+                importer.addCard(card.getQuestion(), card.getAnswer());
+            }
+            importer.endDeck();
+        } catch (Exception e) {
+            importer.abortDeck(deck.getName(), e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
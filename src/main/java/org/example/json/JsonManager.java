@@ -1,9 +1,23 @@
 package org.example.json;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.example.db.ChangeVisitor;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.db.DeckVisitor;
+import org.example.db.ImportResult;
+import org.example.enteties.Card;
 import org.example.enteties.Deck;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -18,19 +32,372 @@ public class JsonManager {
     private static final Gson gson = new Gson();
 
     public static void saveDecksToJson(List<Deck> decks, String filePath) {
+        OperationMetrics metrics = Metrics.operation("json.saveDecksToJson");
+        long start = System.nanoTime();
+        boolean failed = true;
         try (Writer writer = new FileWriter(filePath)) {
             gson.toJson(decks, writer);
+            failed = false;
         } catch (IOException e) {
             System.err.println("Error saving to JSON: " + e.getMessage());
+        } finally {
+            metrics.record(start, failed);
         }
     }
 
     public static List<Deck> loadDecksFromJson(String filePath) {
+        OperationMetrics metrics = Metrics.operation("json.loadDecksFromJson");
+        long start = System.nanoTime();
+        boolean failed = true;
         try (Reader reader = new FileReader(filePath)) {
-            return gson.fromJson(reader, new TypeToken<List<Deck>>() {}.getType());
+            List<Deck> decks = gson.fromJson(reader, new TypeToken<List<Deck>>() {}.getType());
+            failed = false;
+            return decks;
         } catch (IOException e) {
             System.err.println("Error loading from JSON: " + e.getMessage());
             return null;
+        } finally {
+            metrics.record(start, failed);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams every deck straight from a database cursor into the file, one card at a time.
+     * Produces the same layout as {@link #saveDecksToJson}.
+     */
+    public static boolean exportDecksStreaming(DatabaseManager db, String filePath) {
+        OperationMetrics metrics = Metrics.operation("json.exportDecksStreaming");
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Writer writer = new BufferedWriter(new FileWriter(filePath))) {
+            exportDecksStreaming(db, writer);
+            failed = false;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving to JSON: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.record(start, failed);
+        }
+    }
+
+    /**
+     * Same as {@link #exportDecksStreaming(DatabaseManager, String)} for an already open writer,
+     * for example an HTTP response body. The writer is flushed but not closed.
+     */
+    public static void exportDecksStreaming(DatabaseManager db, Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writeDecks(db, writer);
+        writer.flush();
+    }
+
+    private static void writeDecks(DatabaseManager db, JsonWriter writer) throws IOException {
+        writer.beginArray();
+        db.forEachDeck(new DeckVisitor() {
+            @Override
+            public void beginDeck(long id, String name) throws IOException {
+                writer.beginObject();
+                writer.name("id").value(id);
+                writer.name("name").value(name);
+                writer.name("cards").beginArray();
+            }
+
+            @Override
+            public void card(Card card) throws IOException {
+                writer.beginObject();
+                writer.name("id").value(card.getId());
+                writer.name("question").value(card.getQuestion());
+                writer.name("answer").value(card.getAnswer());
+                writer.endObject();
+            }
+
+            @Override
+            public void endDeck() throws IOException {
+                writer.endArray();
+                writer.endObject();
+            }
+        });
+        writer.endArray();
+    }
+
+    /**
+     * Writes everything that changed after the given sequence number to the file, see
+     * {@link #exportDelta(DatabaseManager, long, Writer)}. Returns the sequence number to pass
+     * as since for the next delta, or -1 if the file could not be written.
+     */
+    public static long exportDelta(DatabaseManager db, long since, String filePath) {
+        try (Writer writer = new BufferedWriter(new FileWriter(filePath))) {
+            return exportDelta(db, since, writer);
+        } catch (IOException e) {
+            System.err.println("Error saving to JSON: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Streams the changes after the given sequence number as one object:
+     * {"since", "until", "deletedDecks": [names], "decks": [decks with only their new or changed
+     * cards], "deletedCards": [{"deck", "question", "answer"}]}. The sections are written in the order
+     * they must be applied, and an import of the object applies them in file order, so applying
+     * the same delta twice changes nothing. A delta since 0 holds every deck and card.
+     * The writer is flushed but not closed.
+     */
+    public static long exportDelta(DatabaseManager db, long since, Writer out) throws IOException {
+        OperationMetrics metrics = Metrics.operation("json.exportDelta");
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            JsonWriter writer = new JsonWriter(out);
+            writer.beginObject();
+            writer.name("since").value(since);
+            DeltaWriter delta = new DeltaWriter(writer);
+            long until = db.forEachChange(since, delta);
+            delta.finish();
+            writer.name("until").value(until);
+            writer.endObject();
+            writer.flush();
+            failed = false;
+            return until;
+        } finally {
+            metrics.record(start, failed);
+        }
+    }
+
+    /**
+     * Writes the sections of a delta in order, opening each array when the first change of a
+     * later section arrives so that every section is present even when it is empty.
+     */
+    private static class DeltaWriter implements ChangeVisitor {
+        private static final String[] SECTIONS = {"deletedDecks", "decks", "deletedCards"};
+
+        private final JsonWriter writer;
+        private int section = -1;
+
+        DeltaWriter(JsonWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void deletedDeck(String name) throws IOException {
+            moveTo(0);
+            writer.value(name);
+        }
+
+        @Override
+        public void beginDeck(long id, String name) throws IOException {
+            moveTo(1);
+            writer.beginObject();
+            writer.name("name").value(name);
+            writer.name("cards").beginArray();
+        }
+
+        @Override
+        public void card(Card card) throws IOException {
+            writer.beginObject();
+            writer.name("question").value(card.getQuestion());
+            writer.name("answer").value(card.getAnswer());
+            writer.endObject();
+        }
+
+        @Override
+        public void endDeck() throws IOException {
+            writer.endArray();
+            writer.endObject();
+        }
+
+        @Override
+        public void deletedCard(String deckName, String question, String answer) throws IOException {
+            moveTo(2);
+            writer.beginObject();
+            writer.name("deck").value(deckName);
+            writer.name("question").value(question);
+            if (answer != null) {
+                writer.name("answer").value(answer);
+            }
+            writer.endObject();
+        }
+
+        void finish() throws IOException {
+            moveTo(SECTIONS.length - 1);
+            writer.endArray();
+        }
+
+        private void moveTo(int target) throws IOException {
+            while (section < target) {
+                if (section >= 0) {
+                    writer.endArray();
+                }
+                writer.name(SECTIONS[++section]).beginArray();
+            }
+        }
+    }
+
+    /**
+     * Parses the file one card at a time and pushes each card into a batched database writer,
+     * so memory use does not grow with the file size. A deck must carry its name before its cards.
+     * Accepts both a full export and a delta written by {@link #exportDelta}.
+     * Returns null if the file cannot be read or is malformed; decks committed before the error are kept.
+     */
+    public static ImportResult importDecksStreaming(DatabaseManager db, String filePath) {
+        try (Reader reader = new BufferedReader(new FileReader(filePath))) {
+            return importDecksStreaming(db, reader);
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            System.err.println("Error loading from JSON: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #importDecksStreaming(DatabaseManager, String)} for an already open reader.
+     * Input that is malformed, has the wrong structure or cannot be read is reported as a
+     * {@link JsonParseException} instead of null. The database is locked for writes while the
+     * reader is consumed, so a slow source should be buffered first.
+     */
+    public static ImportResult importDecksStreaming(DatabaseManager db, Reader in) throws IOException {
+        OperationMetrics metrics = Metrics.operation("json.importDecksStreaming");
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+            try {
+                JsonReader reader = new JsonReader(in);
+                if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readDelta(reader, importer);
+                } else {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readDeck(reader, importer);
+                    }
+                    reader.endArray();
+                }
+            } catch (IllegalStateException | IOException e) {
+                // JsonReader reports unexpected tokens as IllegalStateException and bad syntax or a
+                // truncated input as an IOException
+                throw new JsonParseException("Malformed JSON: " + e.getMessage(), e);
+            }
+            ImportResult result = importer.finish();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(start, failed);
+        }
+    }
+
+    /**
+     * Applies the sections of a delta in file order. Deletes of decks or cards that are
+     * already gone are no-ops, and cards are merged like any import, so replays are harmless.
+     */
+    private static void readDelta(JsonReader reader, DeckImporter importer) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "deletedDecks" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        importer.deleteDeck(reader.nextString());
+                    }
+                    reader.endArray();
+                }
+                case "decks" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readDeck(reader, importer);
+                    }
+                    reader.endArray();
+                }
+                case "deletedCards" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String deck = null;
+                        String question = null;
+                        String answer = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "deck" -> deck = nextNullableString(reader);
+                                case "question" -> question = nextNullableString(reader);
+                                case "answer" -> answer = nextNullableString(reader);
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        if (deck == null || question == null) {
+                            throw new JsonParseException("Deleted card needs a deck and a question at " + reader.getPath());
+                        }
+                        importer.deleteCard(deck, question, answer);
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readDeck(JsonReader reader, DeckImporter importer) throws IOException {
+        String name = null;
+        Exception failure = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "cards" -> {
+                    if (name == null) {
+                        throw new JsonParseException("Deck name must precede its cards at " + reader.getPath());
+                    }
+                    try {
+                        importer.beginDeck(name);
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String question = null;
+                        String answer = null;
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "question" -> question = nextNullableString(reader);
+                                case "answer" -> answer = nextNullableString(reader);
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        if (failure == null) {
+                            try {
+                                importer.addCard(question, answer);
+                            } catch (Exception e) {
+                                failure = e;
+                            }
+                        }
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (name == null) {
+            return;
+        }
+        if (failure != null) {
+            importer.abortDeck(name, failure);
+            return;
+        }
+        try {
+            if (!importer.isDeckOpen()) {
+                importer.beginDeck(name);
+            }
+            importer.endDeck();
+        } catch (Exception e) {
+            importer.abortDeck(name, e);
+        }
+    }
+
+    private static String nextNullableString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
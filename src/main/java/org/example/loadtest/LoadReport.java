@@ -0,0 +1,116 @@
+package org.example.loadtest;
+
+import org.example.db.PoolStats;
+import org.example.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Results of a {@link LoadTest}: latency of successful operations per workload and overall,
+ * failures with the busy and locked ones counted separately, and pool contention during the run.
+ * Recording is thread-safe; the totals are final once {@link LoadTest#run} has returned.
+ */
+public class LoadReport {
+    private final int learners;
+    private final Map<LoadTest.Workload, LatencyHistogram> latencies = new EnumMap<>(LoadTest.Workload.class);
+    private final Map<LoadTest.Workload, LongAdder> errors = new EnumMap<>(LoadTest.Workload.class);
+    private final Map<LoadTest.Workload, LongAdder> busy = new EnumMap<>(LoadTest.Workload.class);
+    private final LatencyHistogram total = new LatencyHistogram();
+    private long elapsedNanos;
+    private PoolStats contention;
+
+    LoadReport(int learners) {
+        this.learners = learners;
+        for (LoadTest.Workload workload : LoadTest.Workload.values()) {
+            latencies.put(workload, new LatencyHistogram());
+            errors.put(workload, new LongAdder());
+            busy.put(workload, new LongAdder());
+        }
+    }
+
+    void record(LoadTest.Workload workload, long nanos) {
+        latencies.get(workload).record(nanos);
+        total.record(nanos);
+    }
+
+    void fail(LoadTest.Workload workload, boolean busyError) {
+        errors.get(workload).increment();
+        if (busyError) {
+            busy.get(workload).increment();
+        }
+    }
+
+    void finish(long elapsedNanos, PoolStats contention) {
+        this.elapsedNanos = elapsedNanos;
+        this.contention = contention;
+    }
+
+    public int getLearners() {
+        return learners;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public PoolStats getContention() {
+        return contention;
+    }
+
+    public LatencyHistogram getLatency(LoadTest.Workload workload) {
+        return latencies.get(workload);
+    }
+
+    public LatencyHistogram getTotalLatency() {
+        return total;
+    }
+
+    public long getErrors(LoadTest.Workload workload) {
+        return errors.get(workload).sum();
+    }
+
+    public long getBusyErrors(LoadTest.Workload workload) {
+        return busy.get(workload).sum();
+    }
+
+    public long getTotalErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getTotalBusyErrors() {
+        return busy.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * Successful operations per second over the whole run.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : total.count() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Prints tab-separated lines: one per workload and a total with operations, errors, busy errors,
+     * operations per second and p50/p95/p99/max latency in milliseconds, then the pool's wait counts
+     * and total wait time in milliseconds.
+     */
+    public void print(PrintStream out) {
+        out.println("workload\tops\terrors\tbusy\tops_per_s\tp50_ms\tp95_ms\tp99_ms\tmax_ms");
+        for (LoadTest.Workload workload : LoadTest.Workload.values()) {
+            line(out, workload.name().toLowerCase(Locale.ROOT), latencies.get(workload), getErrors(workload), getBusyErrors(workload));
+        }
+        line(out, "total", total, getTotalErrors(), getTotalBusyErrors());
+        out.println(String.format(Locale.ROOT, "write_lock_waits\t%d\t%.1f", contention.getWriteWaits(), contention.getWriteWaitNanos() / 1e6));
+        out.println(String.format(Locale.ROOT, "reader_waits\t%d\t%.1f", contention.getReadWaits(), contention.getReadWaitNanos() / 1e6));
+        out.println(String.format(Locale.ROOT, "learners\t%d\t%.2f s", learners, elapsedNanos / 1e9));
+    }
+
+    private void line(PrintStream out, String name, LatencyHistogram latency, long errors, long busyErrors) {
+        out.println(String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%.0f\t%.2f\t%.2f\t%.2f\t%.2f", name, latency.count(), errors, busyErrors,
+                elapsedNanos == 0 ? 0 : latency.count() * 1e9 / elapsedNanos,
+                latency.percentile(0.50) / 1e6, latency.percentile(0.95) / 1e6, latency.percentile(0.99) / 1e6, latency.max() / 1e6));
+    }
+}
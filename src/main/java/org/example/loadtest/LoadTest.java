@@ -0,0 +1,274 @@
+package org.example.loadtest;
+
+import lombok.Data;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
+import org.example.db.PoolStats;
+import org.example.enteties.Card;
+import org.example.enteties.Deck;
+import org.example.enteties.ScheduledCard;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.study.RandomSession;
+import org.example.study.Sm2Scheduler;
+import org.example.study.StudySession;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates many learners using one database at once, each on its own virtual thread, to show
+ * how {@link DatabaseManager} scales under concurrent study sessions. Every learner loops until
+ * the time is up, picking a {@link Workload} by the configured weights and timing it; the
+ * resulting {@link LoadReport} has throughput, latency percentiles, errors, SQLITE_BUSY and
+ * SQLITE_LOCKED failures, and how often the pool made a lease wait. An empty database is first
+ * filled with synthetic decks; a database that already has decks is used as it is and modified.
+ */
+public class LoadTest {
+    public enum Workload {
+        /**
+         * Reads as the menus do: deck listing, full-text search or a page of cards.
+         */
+        SELECT,
+        /**
+         * Takes the next card of a shuffled session and commits its review.
+         */
+        STUDY,
+        /**
+         * Loads a page of cards and changes the answer of one of them.
+         */
+        EDIT,
+        /**
+         * Imports a small batch of new cards into the learner's own deck.
+         */
+        IMPORT
+    }
+
+    @Data
+    public static class Config {
+        private int learners = 100;
+        private long durationMillis = 10_000;
+        private int cards = 20_000;
+        private int cardsPerDeck = 500;
+        private int minQuestionWords = 4;
+        private int maxQuestionWords = 12;
+        private int minAnswerWords = 1;
+        private int maxAnswerWords = 3;
+        private double skew = SyntheticDeckGenerator.DEFAULT_SKEW;
+        private int importSize = 20;
+        private long seed = 42;
+        /**
+         * Relative weights of the workloads, in {@link Workload} order.
+         */
+        private int[] mix = {60, 25, 10, 5};
+
+        SyntheticDeckGenerator generator() {
+            return new SyntheticDeckGenerator(seed, cardsPerDeck, minQuestionWords, maxQuestionWords,
+                    minAnswerWords, maxAnswerWords, skew);
+        }
+    }
+
+    private static final int PAGE_SIZE = 50;
+    private static final int SEARCH_LIMIT = 20;
+    private static final int CORRECT_PERCENT = 70;
+
+    private final DatabaseManager db;
+    private final Config config;
+    private final SyntheticDeckGenerator generator;
+    private final int[] cumulativeMix;
+
+    public LoadTest(DatabaseManager db, Config config) {
+        if (config.getLearners() <= 0 || config.getDurationMillis() <= 0 || config.getImportSize() <= 0) {
+            throw new IllegalArgumentException("Learners, duration and import size must be positive");
+        }
+        int[] mix = config.getMix();
+        if (mix.length != Workload.values().length) {
+            throw new IllegalArgumentException("Mix needs one weight per workload");
+        }
+        this.db = db;
+        this.config = config;
+        this.generator = config.generator();
+        this.cumulativeMix = new int[mix.length];
+        int sum = 0;
+        for (int i = 0; i < mix.length; i++) {
+            if (mix[i] < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative");
+            }
+            sum += mix[i];
+            cumulativeMix[i] = sum;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+    }
+
+    /**
+     * Fills an empty database with config.cards synthetic cards and returns how long that took, or 0 if it had decks.
+     */
+    public long prepare() {
+        if (!db.getDeckSummaries().isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        generator.populate(db, config.getCards());
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs all learners for the configured duration and waits for them to finish.
+     */
+    public LoadReport run() throws InterruptedException {
+        long[] deckIds = db.getDeckSummaries().stream()
+                .filter(deck -> deck.getCardCount() > 0)
+                .mapToLong(DeckSummary::getId)
+                .toArray();
+        if (deckIds.length == 0) {
+            throw new IllegalStateException("The database has no cards to study");
+        }
+        LoadReport report = new LoadReport(config.getLearners());
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        CountDownLatch ready = new CountDownLatch(1);
+        PoolStats before = db.getPoolStats();
+        long start;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.getLearners(); i++) {
+                Learner learner = new Learner(i, seeds.split(), deckIds, report);
+                executor.submit(() -> {
+                    ready.await();
+                    learner.run(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getDurationMillis()));
+                    return null;
+                });
+            }
+            start = System.nanoTime();
+            ready.countDown();
+        }
+        report.finish(System.nanoTime() - start, db.getPoolStats().minus(before));
+        return report;
+    }
+
+    private Workload pick(SplittableRandom random) {
+        int roll = random.nextInt(cumulativeMix[cumulativeMix.length - 1]);
+        int i = 0;
+        while (roll >= cumulativeMix[i]) {
+            i++;
+        }
+        return Workload.values()[i];
+    }
+
+    /**
+     * True if SQLite refused the operation because the database was busy or locked. Import failures
+     * only keep the message, which sqlite-jdbc prefixes with the result code.
+     */
+    static boolean isBusy(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof SQLiteException sqlite) {
+                String code = sqlite.getResultCode().name();
+                return code.startsWith(SQLiteErrorCode.SQLITE_BUSY.name()) || code.startsWith(SQLiteErrorCode.SQLITE_LOCKED.name());
+            }
+            String message = e.getMessage();
+            if (message != null && (message.contains(SQLiteErrorCode.SQLITE_BUSY.name()) || message.contains(SQLiteErrorCode.SQLITE_LOCKED.name()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One simulated user. Only its own thread touches its state, including its random generator.
+     */
+    private final class Learner {
+        private final int number;
+        private final SplittableRandom random;
+        private final long[] deckIds;
+        private final LoadReport report;
+        // Without a write-behind writer every review commits before the next card, as in a single session
+        private final Sm2Scheduler scheduler;
+        private StudySession session;
+        private int imported;
+
+        Learner(int number, SplittableRandom random, long[] deckIds, LoadReport report) {
+            this.number = number;
+            this.random = random;
+            this.deckIds = deckIds;
+            this.report = report;
+            this.scheduler = new Sm2Scheduler(db, Clock.systemUTC());
+        }
+
+        void run(long deadline) {
+            while (System.nanoTime() < deadline) {
+                Workload workload = pick(random);
+                long start = System.nanoTime();
+                try {
+                    execute(workload);
+                    report.record(workload, System.nanoTime() - start);
+                } catch (Exception e) {
+                    report.fail(workload, isBusy(e));
+                }
+            }
+        }
+
+        private void execute(Workload workload) {
+            switch (workload) {
+                case SELECT -> select();
+                case STUDY -> study();
+                case EDIT -> edit();
+                case IMPORT -> importCards();
+            }
+        }
+
+        private long randomDeck() {
+            return deckIds[random.nextInt(deckIds.length)];
+        }
+
+        private void select() {
+            switch (random.nextInt(3)) {
+                case 0 -> db.getDeckSummaries();
+                case 1 -> db.searchCards(generator.word(random), null, SEARCH_LIMIT);
+                default -> db.getCardsPage(randomDeck(), 0, PAGE_SIZE);
+            }
+        }
+
+        private void study() {
+            ScheduledCard card = session != null ? session.next() : null;
+            if (card == null) {
+                // Learners start on different decks and move to another one when a deck is done
+                long deckId = session == null ? deckIds[number % deckIds.length] : randomDeck();
+                session = RandomSession.shuffle(db, deckId, random);
+                card = session.next();
+            }
+            boolean correct = random.nextInt(100) < CORRECT_PERCENT;
+            scheduler.review(card, correct ? Sm2Scheduler.GRADE_CORRECT : Sm2Scheduler.GRADE_INCORRECT);
+        }
+
+        private void edit() {
+            List<Card> page = db.getCardsPage(randomDeck(), 0, PAGE_SIZE);
+            Card card = page.get(random.nextInt(page.size()));
+            db.updateCard(card.getId(), card.getQuestion(), generator.answer(random));
+        }
+
+        private void importCards() {
+            Deck deck = new Deck();
+            deck.setName("Load learner " + number);
+            deck.setCards(new ArrayList<>(config.getImportSize()));
+            for (int i = 0; i < config.getImportSize(); i++) {
+                Card card = new Card();
+                // Numbered so that every import adds new cards instead of updating earlier ones
+                card.setQuestion(generator.question(random) + " #" + imported++);
+                card.setAnswer(generator.answer(random));
+                deck.getCards().add(card);
+            }
+            ImportResult result = db.importDecks(List.of(deck));
+            if (!result.getFailures().isEmpty()) {
+                throw new IllegalStateException(result.getFailures().values().iterator().next());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of operation metrics. Each operation is published over JMX
+ * the first time it is recorded.
+ */
+public final class Metrics {
+    public static final String JMX_DOMAIN = "org.example.flashcards";
+
+    private static final ConcurrentHashMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = OPERATIONS.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return OPERATIONS.computeIfAbsent(name, key -> register(new OperationMetrics(key)));
+    }
+
+    /**
+     * Runs the action and records its latency, counting thrown exceptions as errors.
+     */
+    public static <T> T time(String name, Supplier<T> action) {
+        OperationMetrics metrics = operation(name);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = action.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(start, failed);
+        }
+    }
+
+    /**
+     * All operations recorded so far, sorted by name.
+     */
+    public static List<OperationMetrics> snapshot() {
+        Collection<OperationMetrics> values = OPERATIONS.values();
+        List<OperationMetrics> sorted = new ArrayList<>(values);
+        sorted.sort(Comparator.comparing(OperationMetrics::getName));
+        return sorted;
+    }
+
+    public static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + ObjectName.quote(operation));
+    }
+
+    private static OperationMetrics register(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(metrics.getName());
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering metrics MBean " + metrics.getName() + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional periodic dump of all operation metrics to a log file.
+ * Enabled by the system property flashcards.metrics.log=&lt;path&gt;, with the interval in seconds
+ * taken from flashcards.metrics.interval (default 60).
+ */
+public final class MetricsReporter {
+    public static final String LOG_PROPERTY = "flashcards.metrics.log";
+    public static final String INTERVAL_PROPERTY = "flashcards.metrics.interval";
+
+    private MetricsReporter() {
+    }
+
+    /**
+     * Starts the reporter when configured; returns null otherwise.
+     */
+    public static ScheduledExecutorService startFromSystemProperties() {
+        String path = System.getProperty(LOG_PROPERTY);
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        long interval = Long.getLong(INTERVAL_PROPERTY, 60);
+        return start(path, interval, TimeUnit.SECONDS);
+    }
+
+    public static ScheduledExecutorService start(String path, long interval, TimeUnit unit) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> dump(path), interval, interval, unit);
+        return executor;
+    }
+
+    public static void dump(String path) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path, true))) {
+            String timestamp = Instant.now().toString();
+            for (OperationMetrics metrics : Metrics.snapshot()) {
+                out.println(timestamp + " " + metrics);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+}
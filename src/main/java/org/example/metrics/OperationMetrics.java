@@ -0,0 +1,66 @@
+package org.example.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one named operation.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    @Getter
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one call that started at startNanos (from System.nanoTime) and ends now.
+     */
+    public void record(long startNanos, boolean failed) {
+        latency.record(System.nanoTime() - startNanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public long getCalls() {
+        return latency.count();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getMeanMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.mean());
+    }
+
+    @Override
+    public long getP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.50));
+    }
+
+    @Override
+    public long getP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.percentile(0.99));
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(latency.max());
+    }
+
+    @Override
+    public String toString() {
+        return name + " calls=" + getCalls() + " errors=" + getErrors() + " meanUs=" + getMeanMicros()
+                + " p50Us=" + getP50Micros() + " p99Us=" + getP99Micros() + " maxUs=" + getMaxMicros();
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.metrics;
+
+/**
+ * JMX view of one operation, published as org.example.flashcards:type=Operation,name=&lt;operation&gt;.
+ * Latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+    long getCalls();
+
+    long getErrors();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+}
@@ -0,0 +1,446 @@
+package org.example.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.cache.DeckCache;
+import org.example.db.DatabaseManager;
+import org.example.db.DuplicateCardException;
+import org.example.db.ImportResult;
+import org.example.enteties.ScheduledCard;
+import org.example.json.JsonManager;
+import org.example.metrics.Metrics;
+import org.example.study.ReviewWriter;
+import org.example.study.Sm2Scheduler;
+import org.example.study.matching.AnswerGrader;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless HTTP/JSON API on top of {@link DatabaseManager} and {@link JsonManager}.
+ * Every exchange runs on its own virtual thread, except for reading request bodies, which runs on
+ * a platform thread so a stalled upload cannot pin a carrier. At most maxConcurrent requests are processed
+ * at once; a request that cannot get a slot within the queue timeout gets 503, and a request
+ * that runs longer than the request timeout gets 504. Graded answers are committed write-behind
+ * by a {@link ReviewWriter}, which {@link #close()} flushes, so study/next may serve a card again
+ * until its review is written, at most the writer's max delay later.
+ *
+ * <pre>
+ * GET    /decks                      deck summaries
+ * POST   /decks                      {"name"} -> {"id"}
+ * GET    /decks/{id}                 deck with cards
+ * DELETE /decks/{id}
+ * POST   /decks/{id}/cards           {"question", "answer"}
+ * PUT    /cards/{id}                 {"question", "answer"}
+ * DELETE /cards/{id}
+ * GET    /decks/{id}/study/next      next due card without its answer, 204 when none is due
+ * POST   /cards/{id}/answer          {"answer"} -> {"correct", "expected", "dueAt"}
+ * GET    /search?q=..&amp;deckId=..&amp;limit=..
+ * GET    /export                     all decks in the JSON export layout
+ * POST   /import                     JSON export layout -> import result
+ * </pre>
+ */
+public class FlashcardServer implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONCURRENT = 1024;
+    public static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 100;
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10_000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final Gson gson = new Gson();
+
+    private final DatabaseManager db;
+    private final DeckCache deckCache;
+    private final ReviewWriter reviews;
+    private final Sm2Scheduler scheduler;
+    private final AnswerGrader grader = new AnswerGrader();
+    private final Clock clock;
+    private final Semaphore slots;
+    private final long queueTimeoutMillis;
+    private final long requestTimeoutMillis;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService uploads = Executors.newCachedThreadPool(Thread.ofPlatform().daemon().name("flashcards-upload-", 0).factory());
+    private final HttpServer server;
+
+    public FlashcardServer(DatabaseManager db, DeckCache deckCache, int port) throws IOException {
+        this(db, deckCache, Clock.systemDefaultZone(), port, DEFAULT_MAX_CONCURRENT, DEFAULT_QUEUE_TIMEOUT_MILLIS, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    public FlashcardServer(DatabaseManager db, DeckCache deckCache, Clock clock, int port, int maxConcurrent,
+                           long queueTimeoutMillis, long requestTimeoutMillis) throws IOException {
+        this.db = db;
+        this.deckCache = deckCache;
+        this.clock = clock;
+        this.reviews = new ReviewWriter(db);
+        this.scheduler = new Sm2Scheduler(db, clock, reviews);
+        this.slots = new Semaphore(maxConcurrent);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public FlashcardServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Closes the server, flushing queued reviews, when the JVM shuts down.
+     */
+    public FlashcardServer closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "flashcard-server-shutdown"));
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server and commits the graded answers still queued. Close it before the database.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+        uploads.shutdownNow();
+        try {
+            // Lets interrupted routes finish grading so their reviews are queued before the flush
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reviews.close();
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            AtomicBoolean committed = new AtomicBoolean();
+            boolean acquired;
+            try {
+                acquired = slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!acquired) {
+                Metrics.operation("http.rejected").record(System.nanoTime(), true);
+                sendError(exchange, committed, 503, "Server busy");
+                return;
+            }
+            // The slot is held until both this thread and the route thread are done, so a route
+            // that outlives its timeout still counts against maxConcurrent
+            AtomicInteger holders = new AtomicInteger(2);
+            Runnable releaseSlot = () -> {
+                if (holders.decrementAndGet() == 0) {
+                    slots.release();
+                }
+            };
+            long start = System.nanoTime();
+            boolean failed = true;
+            Future<Response> result;
+            try {
+                result = executor.submit(() -> {
+                    try {
+                        return route(exchange, committed);
+                    } finally {
+                        releaseSlot.run();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                releaseSlot.run();
+                releaseSlot.run();
+                throw e;
+            }
+            try {
+                Response response = result.get(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+                if (response != null) {
+                    send(exchange, committed, response.status(), response.body());
+                }
+                failed = false;
+            } catch (TimeoutException e) {
+                result.cancel(true);
+                // A route that has started streaming cannot be turned into a 504; closing the exchange cuts it off
+                sendError(exchange, committed, 504, "Request timed out");
+            } catch (ExecutionException e) {
+                int status = statusOf(e.getCause());
+                sendError(exchange, committed, status, status == 500 ? null : e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                releaseSlot.run();
+                Metrics.operation(methodMetric(exchange.getRequestMethod())).record(start, failed);
+            }
+        }
+    }
+
+    /**
+     * Metric name for a request method. The method is chosen by the client, so anything but the
+     * methods the server routes shares one name instead of registering a new metric each.
+     */
+    private static String methodMetric(String method) {
+        return switch (method) {
+            case "GET" -> "http.GET";
+            case "POST" -> "http.POST";
+            case "PUT" -> "http.PUT";
+            case "DELETE" -> "http.DELETE";
+            default -> "http.other";
+        };
+    }
+
+    /**
+     * Validation failures of the request itself are 400 and a clash with existing data is 409.
+     * Anything else, including IllegalStateException from a closed pool or importer, is a 500.
+     */
+    private static int statusOf(Throwable error) {
+        if (error instanceof HttpError httpError) {
+            return httpError.status;
+        }
+        if (error instanceof IllegalArgumentException || error instanceof JsonParseException) {
+            return 400;
+        }
+        if (error instanceof DuplicateCardException) {
+            return 409;
+        }
+        if (error instanceof SQLiteException sqliteError && sqliteError.getResultCode().name().startsWith(SQLiteErrorCode.SQLITE_CONSTRAINT.name())) {
+            return 409;
+        }
+        return 500;
+    }
+
+    /**
+     * Returns the response to send, or null when the handler already streamed its own response.
+     */
+    private Response route(HttpExchange exchange, AtomicBoolean committed) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+        String resource = path[0];
+        int length = path.length;
+
+        if (resource.equals("decks")) {
+            if (length == 1 && method.equals("GET")) {
+                return new Response(200, db.getDeckSummaries());
+            }
+            if (length == 1 && method.equals("POST")) {
+                JsonObject body = readBody(exchange);
+                return new Response(201, Map.of("id", db.createDeck(string(body, "name"))));
+            }
+            long deckId = length >= 2 ? id(path[1]) : 0;
+            if (length == 2 && method.equals("GET")) {
+                return new Response(200, found(deckCache.getDeckById(deckId)));
+            }
+            if (length == 2 && method.equals("DELETE")) {
+                deckCache.deleteDeck(deckId);
+                return new Response(204, null);
+            }
+            if (length == 3 && path[2].equals("cards") && method.equals("POST")) {
+                JsonObject body = readBody(exchange);
+                found(db.getDeckById(deckId));
+                deckCache.addCard(deckId, string(body, "question"), string(body, "answer"));
+                return new Response(201, null);
+            }
+            if (length == 4 && path[2].equals("study") && path[3].equals("next") && method.equals("GET")) {
+                List<ScheduledCard> due = db.getDueCards(deckId, clock.millis(), Long.MIN_VALUE, 0, 1);
+                if (due.isEmpty()) {
+                    return new Response(204, null);
+                }
+                ScheduledCard card = due.getFirst();
+                return new Response(200, Map.of("cardId", card.getCardId(), "question", card.getQuestion()));
+            }
+        } else if (resource.equals("cards") && length >= 2) {
+            long cardId = id(path[1]);
+            if (length == 2 && method.equals("PUT")) {
+                JsonObject body = readBody(exchange);
+                deckCache.updateCard(cardId, string(body, "question"), string(body, "answer"));
+                return new Response(204, null);
+            }
+            if (length == 2 && method.equals("DELETE")) {
+                deckCache.deleteCard(cardId);
+                return new Response(204, null);
+            }
+            if (length == 3 && path[2].equals("answer") && method.equals("POST")) {
+                JsonObject body = readBody(exchange);
+                ScheduledCard card = found(db.getScheduledCard(cardId));
+                boolean correct = grader.isCorrect(cardId, card.getAnswer(), string(body, "answer"));
+                scheduler.review(card, correct ? Sm2Scheduler.GRADE_CORRECT : Sm2Scheduler.GRADE_INCORRECT);
+                return new Response(200, Map.of("correct", correct, "expected", card.getAnswer(), "dueAt", card.getDueAt()));
+            }
+        } else if (resource.equals("search") && length == 1 && method.equals("GET")) {
+            Map<String, String> query = query(exchange);
+            String deckId = query.get("deckId");
+            int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_SEARCH_LIMIT;
+            return new Response(200, db.searchCards(query.getOrDefault("q", ""), deckId == null ? null : id(deckId), limit));
+        } else if (resource.equals("export") && length == 1 && method.equals("GET")) {
+            if (!committed.compareAndSet(false, true)) {
+                return null;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+                JsonManager.exportDecksStreaming(db, writer);
+            }
+            return null;
+        } else if (resource.equals("import") && length == 1 && method.equals("POST")) {
+            // The importer locks out every other write, so it only starts once the whole upload is on disk
+            Path upload = Files.createTempFile("flashcards-import", ".json");
+            try {
+                upload(() -> {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        return Files.copy(body, upload, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                });
+                ImportResult result;
+                try (Reader reader = Files.newBufferedReader(upload, StandardCharsets.UTF_8)) {
+                    result = JsonManager.importDecksStreaming(db, reader);
+                }
+                deckCache.invalidateAll();
+                return new Response(200, result);
+            } finally {
+                Files.deleteIfExists(upload);
+            }
+        }
+        throw new HttpError(404, "Not found");
+    }
+
+    private static <T> T found(T value) {
+        if (value == null) {
+            throw new HttpError(404, "Not found");
+        }
+        return value;
+    }
+
+    private static long id(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not found");
+        }
+    }
+
+    private JsonObject readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes = upload(() -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                return body.readAllBytes();
+            }
+        });
+        JsonObject body = gson.fromJson(new String(bytes, StandardCharsets.UTF_8), JsonObject.class);
+        if (body == null) {
+            throw new HttpError(400, "Request body must be a JSON object");
+        }
+        return body;
+    }
+
+    /**
+     * Runs a read of the request body on a platform thread. The JDK server reads the socket while
+     * holding a monitor, which pins a virtual thread to its carrier, so a client that stalls mid-upload
+     * would otherwise hold a carrier and, with few cores, starve every other request.
+     */
+    private <T> T upload(Callable<T> read) throws IOException {
+        Future<T> result = uploads.submit(read);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the request body");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new HttpError(400, "Could not read the request body: " + cause.getMessage());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static String string(JsonObject body, String field) {
+        if (!body.has(field) || body.get(field).isJsonNull()) {
+            throw new HttpError(400, "Missing field: " + field);
+        }
+        return body.get(field).getAsString();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    /**
+     * Sends the response unless one was already committed. Only the first caller may send headers:
+     * the route thread and a timed-out handler race for it, and the loser leaves the exchange to be closed.
+     */
+    private static void send(HttpExchange exchange, AtomicBoolean committed, int status, Object body) throws IOException {
+        if (!committed.compareAndSet(false, true)) {
+            return;
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, AtomicBoolean committed, int status, String message) throws IOException {
+        send(exchange, committed, status, Map.of("error", message == null ? "Internal error" : message));
+    }
+
+}
@@ -0,0 +1,248 @@
+package org.example.snapshot;
+
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
+import org.example.enteties.Card;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.example.snapshot.SnapshotFormat.*;
+
+/**
+ * Read-only view of a binary deck snapshot (see {@link SnapshotFormat}) mapped into memory.
+ * Opening checks only the header, so it takes the same time for any snapshot size; cards are
+ * decoded from the mapping when they are accessed, and {@link #verify()} checks the section
+ * checksums on demand. The view is safe for concurrent readers and can serve a study session
+ * directly, without importing the cards into SQLite.
+ */
+public class DeckSnapshot implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer map;
+    private final int deckCount;
+    private final int cardCount;
+    private final int cardTable;
+    private final int deckTable;
+    private final int strings;
+    private final int stringsLength;
+
+    private DeckSnapshot(FileChannel channel, ByteBuffer map) throws IOException {
+        this.channel = channel;
+        this.map = map;
+        if (map.capacity() < HEADER_SIZE || map.getInt(MAGIC_AT) != MAGIC) {
+            throw new IOException("Not a deck snapshot");
+        }
+        if (map.getShort(VERSION_AT) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + map.getShort(VERSION_AT));
+        }
+        CRC32C headerCrc = new CRC32C();
+        headerCrc.update(map.slice(0, HEADER_CRC_AT));
+        if ((int) headerCrc.getValue() != map.getInt(HEADER_CRC_AT)) {
+            throw new IOException("Snapshot header checksum mismatch");
+        }
+        deckCount = map.getInt(DECK_COUNT_AT);
+        cardCount = map.getInt(CARD_COUNT_AT);
+        cardTable = (int) map.getLong(CARD_TABLE_AT);
+        deckTable = (int) map.getLong(DECK_TABLE_AT);
+        strings = (int) map.getLong(STRINGS_AT);
+        stringsLength = (int) map.getLong(STRINGS_LENGTH_AT);
+        if (deckCount < 0 || cardCount < 0
+                || (long) cardTable + (long) cardCount * CARD_ENTRY_SIZE > deckTable
+                || (long) deckTable + (long) deckCount * DECK_ENTRY_SIZE > strings
+                || (long) strings + stringsLength > map.capacity()) {
+            throw new IOException("Snapshot sections are out of bounds");
+        }
+    }
+
+    /**
+     * Maps the snapshot file read-only. Only the header is read here.
+     */
+    public static DeckSnapshot open(Path path) throws IOException {
+        OperationMetrics metrics = Metrics.operation("snapshot.open");
+        long start = System.nanoTime();
+        boolean failed = true;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot larger than 2 GiB");
+            }
+            DeckSnapshot snapshot = new DeckSnapshot(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            failed = false;
+            return snapshot;
+        } finally {
+            if (failed) {
+                channel.close();
+            }
+            metrics.record(start, failed);
+        }
+    }
+
+    /**
+     * Streams every deck and card from the database into a snapshot file.
+     * A partly written file is removed if the export fails.
+     */
+    public static void write(DatabaseManager db, Path path) throws IOException {
+        OperationMetrics metrics = Metrics.operation("snapshot.write");
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            db.forEachDeck(writer);
+            writer.finish();
+            failed = false;
+        } finally {
+            if (failed) {
+                Files.deleteIfExists(path);
+            }
+            metrics.record(start, failed);
+        }
+    }
+
+    public int getDeckCount() {
+        return deckCount;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public DeckSummary getDeck(int index) {
+        int entry = deckEntry(index);
+        return new DeckSummary(map.getLong(entry), string(entry + 8), map.getInt(entry + 20));
+    }
+
+    public List<DeckSummary> getDecks() {
+        List<DeckSummary> decks = new ArrayList<>(deckCount);
+        for (int i = 0; i < deckCount; i++) {
+            decks.add(getDeck(i));
+        }
+        return decks;
+    }
+
+    /**
+     * Returns the index of the deck with the given name, or -1.
+     */
+    public int findDeck(String name) {
+        byte[] wanted = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < deckCount; i++) {
+            int entry = deckEntry(i);
+            if (map.getInt(entry + 12) == wanted.length
+                    && map.slice(strings + map.getInt(entry + 8), wanted.length).equals(ByteBuffer.wrap(wanted))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes the card at the given position in the card table.
+     */
+    public Card getCard(int index) {
+        if (index < 0 || index >= cardCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int entry = cardTable + index * CARD_ENTRY_SIZE;
+        Card card = new Card();
+        card.setId(map.getLong(entry));
+        card.setQuestion(string(entry + 8));
+        card.setAnswer(string(entry + 16));
+        return card;
+    }
+
+    /**
+     * Cards of one deck as a list view that decodes each card when it is read.
+     */
+    public List<Card> getCards(int deckIndex) {
+        int entry = deckEntry(deckIndex);
+        int first = map.getInt(entry + 16);
+        int count = map.getInt(entry + 20);
+        return new AbstractList<>() {
+            @Override
+            public Card get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return getCard(first + index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Checks the checksums of all sections, reading the whole file.
+     */
+    public void verify() throws IOException {
+        verify("card table", cardTable, cardCount * CARD_ENTRY_SIZE, CARD_TABLE_CRC_AT);
+        verify("deck table", deckTable, deckCount * DECK_ENTRY_SIZE, DECK_TABLE_CRC_AT);
+        verify("strings", strings, stringsLength, STRINGS_CRC_AT);
+    }
+
+    /**
+     * Imports every deck of the snapshot into the database, deduplicating like a JSON import.
+     */
+    public ImportResult importInto(DatabaseManager db) {
+        try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+            for (int i = 0; i < deckCount; i++) {
+                String name = getDeck(i).getName();
+                try {
+                    importer.beginDeck(name);
+                    for (Card card : getCards(i)) {
+                        importer.addCard(card.getQuestion(), card.getAnswer());
+                    }
+                    importer.endDeck();
+                } catch (Exception e) {
+                    importer.abortDeck(name, e);
+                }
+            }
+            return importer.finish();
+        }
+    }
+
+    private void verify(String section, int at, int length, int crcAt) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(map.slice(at, length));
+        if ((int) crc.getValue() != map.getInt(crcAt)) {
+            throw new IOException("Snapshot checksum mismatch in " + section);
+        }
+    }
+
+    private int deckEntry(int index) {
+        if (index < 0 || index >= deckCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return deckTable + index * DECK_ENTRY_SIZE;
+    }
+
+    private String string(int refAt) {
+        int offset = map.getInt(refAt);
+        int length = map.getInt(refAt + 4);
+        if (offset < 0 || length < 0 || (long) offset + length > stringsLength) {
+            throw new IllegalStateException("Corrupt string reference in snapshot");
+        }
+        byte[] bytes = new byte[length];
+        map.get(strings + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.snapshot;
+
+/**
+ * Layout of a binary deck snapshot, version 1. All numbers are big-endian.
+ * <pre>
+ * header      64 bytes, see the offsets below
+ * card table  cardCount entries of 24 bytes: card id (8), question offset (4), question length (4),
+ *             answer offset (4), answer length (4), ordered by deck and then card id
+ * deck table  deckCount entries of 24 bytes: deck id (8), name offset (4), name length (4),
+ *             index of the deck's first card (4), card count (4)
+ * strings     UTF-8 text; offsets above are relative to the start of this section.
+ *             Short strings are stored once and shared by every entry that uses them
+ * </pre>
+ * Each section has a CRC32C in the header and the header carries a CRC32C of its first 60 bytes.
+ * Offsets are 32-bit, so a snapshot is limited to 2 GiB of text.
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x46435350; // "FCSP"
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int CARD_ENTRY_SIZE = 24;
+    static final int DECK_ENTRY_SIZE = 24;
+
+    static final int MAGIC_AT = 0;
+    static final int VERSION_AT = 4;
+    static final int DECK_COUNT_AT = 8;
+    static final int CARD_COUNT_AT = 12;
+    static final int CARD_TABLE_AT = 16;
+    static final int DECK_TABLE_AT = 24;
+    static final int STRINGS_AT = 32;
+    static final int STRINGS_LENGTH_AT = 40;
+    static final int CARD_TABLE_CRC_AT = 48;
+    static final int DECK_TABLE_CRC_AT = 52;
+    static final int STRINGS_CRC_AT = 56;
+    static final int HEADER_CRC_AT = 60;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.snapshot;
+
+import org.example.db.DeckVisitor;
+import org.example.enteties.Card;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import static org.example.snapshot.SnapshotFormat.*;
+
+/**
+ * Writes a snapshot in one pass over {@link org.example.db.DatabaseManager#forEachDeck}.
+ * Card entries go straight into the target file after the header, text goes to a temporary
+ * file next to it and the small deck table stays in memory; {@link #finish()} appends the deck
+ * table and the text and then fills in the header. Memory use does not depend on the card count.
+ */
+class SnapshotWriter implements DeckVisitor, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SHARED_LENGTH = 64;
+    private static final int MAX_SHARED_STRINGS = 1 << 16;
+
+    private final FileChannel out;
+    private final FileChannel strings;
+    private final ByteBuffer cardBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer stringBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteArrayOutputStream deckBytes = new ByteArrayOutputStream();
+    private final DataOutputStream deckTable = new DataOutputStream(deckBytes);
+    private final CRC32C cardCrc = new CRC32C();
+    private final CRC32C stringCrc = new CRC32C();
+    // Short strings such as common answers are written once; values pack offset and length
+    private final Map<String, Long> shared = new HashMap<>();
+
+    private long stringsLength;
+    private int deckCount;
+    private int cardCount;
+    private long deckId;
+    private long deckName;
+    private int deckFirstCard;
+
+    SnapshotWriter(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Path stringsFile = Files.createTempFile(directory, path.getFileName().toString(), ".strings");
+        strings = FileChannel.open(stringsFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            out.position(HEADER_SIZE);
+        } catch (IOException e) {
+            strings.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void beginDeck(long id, String name) throws IOException {
+        deckId = id;
+        deckName = string(name);
+        deckFirstCard = cardCount;
+    }
+
+    @Override
+    public void card(Card card) throws IOException {
+        long question = string(card.getQuestion());
+        long answer = string(card.getAnswer());
+        if (cardBuffer.remaining() < CARD_ENTRY_SIZE) {
+            flush(cardBuffer, out, cardCrc);
+        }
+        cardBuffer.putLong(card.getId())
+                .putInt(offset(question)).putInt(length(question))
+                .putInt(offset(answer)).putInt(length(answer));
+        cardCount++;
+    }
+
+    @Override
+    public void endDeck() throws IOException {
+        deckTable.writeLong(deckId);
+        deckTable.writeInt(offset(deckName));
+        deckTable.writeInt(length(deckName));
+        deckTable.writeInt(deckFirstCard);
+        deckTable.writeInt(cardCount - deckFirstCard);
+        deckCount++;
+    }
+
+    void finish() throws IOException {
+        flush(cardBuffer, out, cardCrc);
+        flush(stringBuffer, strings, stringCrc);
+
+        long deckTableAt = out.position();
+        ByteBuffer decks = ByteBuffer.wrap(deckBytes.toByteArray());
+        CRC32C deckCrc = new CRC32C();
+        deckCrc.update(decks.duplicate());
+        writeFully(decks, out);
+
+        long stringsAt = out.position();
+        for (long copied = 0; copied < stringsLength; ) {
+            copied += strings.transferTo(copied, stringsLength - copied, out);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC_AT, MAGIC)
+                .putShort(VERSION_AT, VERSION)
+                .putInt(DECK_COUNT_AT, deckCount)
+                .putInt(CARD_COUNT_AT, cardCount)
+                .putLong(CARD_TABLE_AT, HEADER_SIZE)
+                .putLong(DECK_TABLE_AT, deckTableAt)
+                .putLong(STRINGS_AT, stringsAt)
+                .putLong(STRINGS_LENGTH_AT, stringsLength)
+                .putInt(CARD_TABLE_CRC_AT, (int) cardCrc.getValue())
+                .putInt(DECK_TABLE_CRC_AT, (int) deckCrc.getValue())
+                .putInt(STRINGS_CRC_AT, (int) stringCrc.getValue());
+        CRC32C headerCrc = new CRC32C();
+        headerCrc.update(header.array(), 0, HEADER_CRC_AT);
+        header.putInt(HEADER_CRC_AT, (int) headerCrc.getValue());
+        out.write(header, 0);
+        out.force(true);
+    }
+
+    private long string(String value) throws IOException {
+        boolean shareable = value.length() <= MAX_SHARED_LENGTH;
+        if (shareable) {
+            Long ref = shared.get(value);
+            if (ref != null) {
+                return ref;
+            }
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (stringsLength + bytes.length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot text exceeds 2 GiB");
+        }
+        long ref = (stringsLength << 32) | bytes.length;
+        for (int written = 0; written < bytes.length; ) {
+            if (!stringBuffer.hasRemaining()) {
+                flush(stringBuffer, strings, stringCrc);
+            }
+            int chunk = Math.min(stringBuffer.remaining(), bytes.length - written);
+            stringBuffer.put(bytes, written, chunk);
+            written += chunk;
+        }
+        stringsLength += bytes.length;
+        if (shareable && shared.size() < MAX_SHARED_STRINGS) {
+            shared.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static int offset(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int length(long ref) {
+        return (int) ref;
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel, CRC32C crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        writeFully(buffer, channel);
+        buffer.clear();
+    }
+
+    private static void writeFully(ByteBuffer buffer, FileChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            strings.close();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.study;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.ScheduledCard;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+/**
+ * Session over the cards of a deck in random order. A shuffle starts by probing random ids
+ * between the deck's lowest and highest card id, fetching the hits in one query and rejecting
+ * gaps, cards of other decks and cards already asked, so the first question costs two index
+ * seeks and one small read whatever the deck's size. Once most probes miss, the ids not asked
+ * yet are read from the deck_id index, without touching any card text, and the rest of the
+ * order is drawn one card at a time with a lazy Fisher-Yates shuffle; question, answer and
+ * schedule are fetched for the next few cards at a time with one query. The text of cards that
+ * are never reached is never loaded.
+ */
+public class RandomSession implements StudySession {
+    public static final int DEFAULT_READ_AHEAD = 8;
+    // Probes per batch, at least; small batches would give up on probing by bad luck
+    private static final int MIN_PROBES = 32;
+    // Probing stops once fewer than one probe in this many finds a card
+    private static final int MAX_MISSES_PER_HIT = 4;
+    // Batches tried for the first card before a sparse id range is scanned instead
+    private static final int FIRST_CARD_BATCHES = 8;
+
+    private final DatabaseManager db;
+    private final long deckId;
+    private final RandomGenerator random;
+    private final int readAhead;
+    private final Queue<ScheduledCard> ahead = new ArrayDeque<>();
+    private long[] ids;
+    private int count;
+    private int drawn;
+    // Id range still probed, and the ids handed out while probing; null once probing is over
+    private long[] range;
+    private Set<Long> asked;
+    private int batches;
+
+    private RandomSession(DatabaseManager db, long deckId, long[] ids, long[] range, RandomGenerator random, int readAhead) {
+        if (readAhead <= 0) {
+            throw new IllegalArgumentException("Read-ahead must be positive");
+        }
+        this.db = db;
+        this.deckId = deckId;
+        this.ids = ids;
+        this.count = ids != null ? ids.length : 0;
+        this.range = range;
+        this.asked = range != null ? new HashSet<>() : null;
+        this.random = random;
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Every card of the deck, each once, in random order.
+     */
+    public static RandomSession shuffle(DatabaseManager db, long deckId, RandomGenerator random) {
+        return shuffle(db, deckId, random, DEFAULT_READ_AHEAD);
+    }
+
+    public static RandomSession shuffle(DatabaseManager db, long deckId, RandomGenerator random, int readAhead) {
+        long[] range = db.getCardIdRange(deckId);
+        return new RandomSession(db, deckId, range != null ? null : new long[0], range, random, readAhead);
+    }
+
+    /**
+     * Up to count cards of the deck, chosen uniformly at random and asked in random order.
+     * The ids are reservoir sampled while the index is scanned, so memory is bounded by count
+     * rather than by deck size.
+     */
+    public static RandomSession sample(DatabaseManager db, long deckId, int count, RandomGenerator random) {
+        return sample(db, deckId, count, random, DEFAULT_READ_AHEAD);
+    }
+
+    public static RandomSession sample(DatabaseManager db, long deckId, int count, RandomGenerator random, int readAhead) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Card count must be positive");
+        }
+        long[] reservoir = new long[count];
+        long[] seen = new long[1];
+        db.forEachCardId(deckId, id -> {
+            long position = seen[0]++;
+            if (position < count) {
+                reservoir[(int) position] = id;
+            } else {
+                long slot = random.nextLong(position + 1);
+                if (slot < count) {
+                    reservoir[(int) slot] = id;
+                }
+            }
+        });
+        long[] sampled = Arrays.copyOf(reservoir, (int) Math.min(count, seen[0]));
+        return new RandomSession(db, deckId, sampled, null, random, readAhead);
+    }
+
+    @Override
+    public ScheduledCard next() {
+        while (ahead.isEmpty()) {
+            if (range != null) {
+                probe();
+            } else if (ids == null) {
+                scanRemaining();
+            } else if (drawn < count) {
+                draw();
+            } else {
+                break;
+            }
+        }
+        return ahead.poll();
+    }
+
+    /**
+     * Fetches one batch of random ids from the probed range and queues the cards found, in the
+     * order they were drawn. Ends probing once the batch's hit rate shows that most of the range
+     * is gaps, other decks' cards or cards already asked.
+     */
+    private void probe() {
+        int batch = Math.max(MIN_PROBES, readAhead * MAX_MISSES_PER_HIT);
+        long span = range[1] - range[0] + 1;
+        long[] probes = new long[batch];
+        Set<Long> tried = new HashSet<>();
+        int size = 0;
+        for (int i = 0; i < batch; i++) {
+            long id = range[0] + random.nextLong(span);
+            if (!asked.contains(id) && tried.add(id)) {
+                probes[size++] = id;
+            }
+        }
+        List<ScheduledCard> found = db.getScheduledCards(probes, 0, size);
+        found.removeIf(card -> card.getDeckId() != deckId);
+        // Hits beyond the read-ahead stay unasked, for later probes to find again
+        List<ScheduledCard> queued = found.subList(0, Math.min(found.size(), readAhead));
+        for (ScheduledCard card : queued) {
+            asked.add(card.getCardId());
+        }
+        ahead.addAll(queued);
+        batches++;
+        boolean sparse = found.size() * MAX_MISSES_PER_HIT < batch;
+        if (sparse && (!asked.isEmpty() || batches >= FIRST_CARD_BATCHES)) {
+            range = null;
+        }
+    }
+
+    /**
+     * Reads the ids of the deck's cards that probing did not ask, to shuffle the rest.
+     */
+    private void scanRemaining() {
+        IdBuffer rest = new IdBuffer();
+        db.forEachCardId(deckId, id -> {
+            if (!asked.contains(id)) {
+                rest.add(id);
+            }
+        });
+        asked = null;
+        ids = rest.toArray();
+        count = ids.length;
+    }
+
+    private void draw() {
+        int from = drawn;
+        int to = Math.min(count, drawn + readAhead);
+        for (; drawn < to; drawn++) {
+            int pick = drawn + random.nextInt(ids.length - drawn);
+            long id = ids[pick];
+            ids[pick] = ids[drawn];
+            ids[drawn] = id;
+        }
+        // Cards deleted since the ids were read are skipped
+        ahead.addAll(db.getScheduledCards(ids, from, to));
+    }
+
+    /**
+     * Growable long[] so that ids are collected without boxing.
+     */
+    private static final class IdBuffer {
+        private long[] ids = new long[64];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
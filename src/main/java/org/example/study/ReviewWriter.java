@@ -0,0 +1,195 @@
+package org.example.study;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.Review;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind pipeline for graded answers. Any number of grading threads submit reviews into a
+ * bounded queue; one writer thread commits them with {@link DatabaseManager#saveReviews} in batches
+ * of up to batchSize, or whatever has arrived once maxDelay has passed since the first pending
+ * review. Grading therefore never waits for a disk sync. When the queue is full the
+ * {@link OverflowPolicy} decides whether the submitter waits or the review is dropped and counted.
+ * {@link #close()} stops intake and flushes everything still queued. Every submitted review is
+ * either written, counted as failed or counted as dropped, even when submit races with close.
+ */
+public class ReviewWriter implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 200;
+    // How often a submitter waiting for space checks whether the writer is closing
+    private static final long OFFER_POLL_MILLIS = 50;
+
+    public enum OverflowPolicy {
+        /**
+         * Submitters wait for space, so no review is lost but grading slows down under overload.
+         */
+        BLOCK,
+        /**
+         * Reviews that do not fit are dropped and counted, so grading latency stays flat.
+         */
+        DROP
+    }
+
+    private final DatabaseManager db;
+    private final BlockingQueue<Review> queue;
+    private final OverflowPolicy policy;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread writer;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // Submitters enqueue under the read lock; close takes the write lock once, so that no review
+    // can be added after the writer thread has decided the queue is drained
+    private final ReentrantReadWriteLock intake = new ReentrantReadWriteLock();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public ReviewWriter(DatabaseManager db) {
+        this(db, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, OverflowPolicy.BLOCK);
+    }
+
+    public ReviewWriter(DatabaseManager db, int capacity, int batchSize, long maxDelayMillis, OverflowPolicy policy) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.db = db;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.policy = policy;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer = new Thread(this::run, "review-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Flushes queued reviews when the JVM shuts down.
+     */
+    public ReviewWriter closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "review-writer-shutdown"));
+        return this;
+    }
+
+    /**
+     * Queues the review; returns false if it was dropped or the writer is closed.
+     */
+    public boolean submit(Review review) {
+        intake.readLock().lock();
+        try {
+            if (closed.get()) {
+                dropped.increment();
+                return false;
+            }
+            if (policy == OverflowPolicy.DROP) {
+                if (!queue.offer(review)) {
+                    dropped.increment();
+                    return false;
+                }
+                return true;
+            }
+            while (!queue.offer(review, OFFER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed.get()) {
+                    dropped.increment();
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            return false;
+        } finally {
+            intake.readLock().unlock();
+        }
+    }
+
+    private void run() {
+        List<Review> batch = new ArrayList<>(batchSize);
+        while (!closed.get() || !queue.isEmpty()) {
+            try {
+                Review first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Review next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() interrupts a waiting writer; the loop condition decides whether to drain
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Review> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            db.saveReviews(batch);
+            written.add(batch.size());
+        } catch (Exception e) {
+            failed.add(batch.size());
+            System.err.println("Error saving " + batch.size() + " reviews: " + e.getMessage());
+        }
+        batch.clear();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting reviews and waits until everything already queued is committed.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Waits for submitters that passed the closed check; the writer keeps draining meanwhile
+        intake.writeLock().lock();
+        intake.writeLock().unlock();
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The writer thread may have seen an empty queue before the last submitters got in
+        if (!writer.isAlive()) {
+            List<Review> rest = new ArrayList<>(batchSize);
+            while (queue.drainTo(rest, batchSize) > 0) {
+                flush(rest);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.study;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.Review;
+import org.example.enteties.ScheduledCard;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SM-2 spaced-repetition scheduler.
+ * Grades go from 0 (complete blackout) to 5 (perfect recall); anything below 3 restarts the card.
+ */
+public class Sm2Scheduler {
+    public static final int GRADE_CORRECT = 4;
+    public static final int GRADE_INCORRECT = 1;
+    private static final double MIN_EASE = 1.3;
+
+    private final DatabaseManager db;
+    private final Clock clock;
+    private final ReviewWriter writer;
+
+    public Sm2Scheduler(DatabaseManager db, Clock clock) {
+        this(db, clock, null);
+    }
+
+    /**
+     * With a writer, reviews are persisted write-behind; without one, each review commits before returning.
+     */
+    public Sm2Scheduler(DatabaseManager db, Clock clock, ReviewWriter writer) {
+        this.db = db;
+        this.clock = clock;
+        this.writer = writer;
+    }
+
+    /**
+     * Applies the grade to the card's schedule, records the review and returns the updated card.
+     */
+    public ScheduledCard review(ScheduledCard card, int grade) {
+        long now = clock.millis();
+        apply(card, grade, now);
+        Review review = Review.of(card, grade, now);
+        if (writer != null) {
+            writer.submit(review);
+        } else {
+            db.saveReviews(List.of(review));
+        }
+        return card;
+    }
+
+    /**
+     * Computes the next interval, ease and due time in place without touching the database.
+     */
+    public static void apply(ScheduledCard card, int grade, long now) {
+        if (grade < 0 || grade > 5) {
+            throw new IllegalArgumentException("Grade must be between 0 and 5");
+        }
+        if (grade >= 3) {
+            int interval = switch (card.getRepetitions()) {
+                case 0 -> 1;
+                case 1 -> 6;
+                default -> (int) Math.round(card.getIntervalDays() * card.getEase());
+            };
+            card.setIntervalDays(interval);
+            card.setRepetitions(card.getRepetitions() + 1);
+        } else {
+            card.setIntervalDays(1);
+            card.setRepetitions(0);
+        }
+        int miss = 5 - grade;
+        card.setEase(Math.max(MIN_EASE, card.getEase() + 0.1 - miss * (0.08 + miss * 0.02)));
+        card.setDueAt(now + TimeUnit.DAYS.toMillis(card.getIntervalDays()));
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.study;
+
+import lombok.Getter;
+
+/**
+ * Order in which a study session asks the cards of a deck.
+ */
+@Getter
+public enum StudyMode {
+    DUE("Due cards"),
+    SHUFFLE("All cards, shuffled"),
+    SAMPLE("N random cards"),
+    WEAK_FIRST("Weak cards first");
+
+    private final String label;
+
+    StudyMode(String label) {
+        this.label = label;
+    }
+}
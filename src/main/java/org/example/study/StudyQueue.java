@@ -0,0 +1,104 @@
+package org.example.study;
+
+import org.example.cache.CardStore;
+import org.example.db.DatabaseManager;
+import org.example.enteties.ScheduledCard;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded queue of due cards for one deck, filled a page at a time from the
+ * (deck_id, due_at) index with a keyset cursor, so a session never loads the whole deck.
+ * The due cutoff is fixed when the queue is created: cards rescheduled during the session
+ * move past it and are not served again. Given the deck's cached {@link CardStore}, pages read
+ * only the schedule and the text is decoded from the store; cards the store does not know yet
+ * are fetched from the database one by one.
+ */
+public class StudyQueue implements StudySession {
+    public static final int DEFAULT_PAGE_SIZE = 64;
+
+    private static final Comparator<ScheduledCard> DUE_ORDER =
+            Comparator.comparingLong(ScheduledCard::getDueAt).thenComparingLong(ScheduledCard::getCardId);
+
+    private final DatabaseManager db;
+    private final long deckId;
+    private final long now;
+    private final int pageSize;
+    private final CardStore texts;
+    private final PriorityQueue<ScheduledCard> queue;
+
+    private long lastDueAt = Long.MIN_VALUE;
+    private long lastCardId;
+    private boolean exhausted;
+
+    public StudyQueue(DatabaseManager db, long deckId, long now) {
+        this(db, deckId, now, DEFAULT_PAGE_SIZE);
+    }
+
+    public StudyQueue(DatabaseManager db, long deckId, long now, int pageSize) {
+        this(db, deckId, now, pageSize, null);
+    }
+
+    public StudyQueue(DatabaseManager db, long deckId, long now, CardStore texts) {
+        this(db, deckId, now, DEFAULT_PAGE_SIZE, texts);
+    }
+
+    /**
+     * @param texts the deck's cards to take question and answer from, or null to read them with each page
+     */
+    public StudyQueue(DatabaseManager db, long deckId, long now, int pageSize, CardStore texts) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.db = db;
+        this.deckId = deckId;
+        this.now = now;
+        this.pageSize = pageSize;
+        this.texts = texts;
+        this.queue = new PriorityQueue<>(pageSize, DUE_ORDER);
+    }
+
+    /**
+     * Returns the most overdue card, or null when no due cards are left.
+     */
+    @Override
+    public ScheduledCard next() {
+        if (queue.isEmpty() && !exhausted) {
+            fill();
+        }
+        return queue.poll();
+    }
+
+    private void fill() {
+        List<ScheduledCard> page = texts == null
+                ? db.getDueCards(deckId, now, lastDueAt, lastCardId, pageSize)
+                : db.getDueSchedules(deckId, now, lastDueAt, lastCardId, pageSize);
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            ScheduledCard last = page.getLast();
+            lastDueAt = last.getDueAt();
+            lastCardId = last.getCardId();
+        }
+        if (texts == null) {
+            queue.addAll(page);
+            return;
+        }
+        for (ScheduledCard card : page) {
+            int index = texts.indexOf(card.getCardId());
+            if (index >= 0) {
+                card.setQuestion(texts.getQuestion(index));
+                card.setAnswer(texts.getAnswer(index));
+                queue.add(card);
+            } else {
+                ScheduledCard stored = db.getScheduledCard(card.getCardId());
+                if (stored != null) {
+                    queue.add(stored);
+                }
+            }
+        }
+    }
+}
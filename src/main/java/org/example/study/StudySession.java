@@ -0,0 +1,14 @@
+package org.example.study;
+
+import org.example.enteties.ScheduledCard;
+
+/**
+ * Source of the cards asked in one study session, fetched as the session goes rather than
+ * loaded up front.
+ */
+public interface StudySession {
+    /**
+     * Returns the next card to ask, or null when the session is over.
+     */
+    ScheduledCard next();
+}
@@ -0,0 +1,67 @@
+package org.example.study;
+
+import org.example.db.DatabaseManager;
+import org.example.enteties.ScheduledCard;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Session over all cards of a deck, due or not, lowest SM-2 ease first: cards that were
+ * answered wrong lose ease, so they come before new cards and well-known ones come last.
+ * Pages come from the (deck_id, ease, card_id) index with a keyset cursor like {@link StudyQueue},
+ * so the first question costs one small page for any deck size. A card whose ease rises past
+ * the cursor after it was answered is skipped, so each card is asked at most once.
+ */
+public class WeakCardsQueue implements StudySession {
+    private final DatabaseManager db;
+    private final long deckId;
+    private final int pageSize;
+    private final Queue<ScheduledCard> page = new ArrayDeque<>();
+    private final Set<Long> asked = new HashSet<>();
+
+    private double lastEase;
+    private long lastCardId;
+    private boolean exhausted;
+
+    public WeakCardsQueue(DatabaseManager db, long deckId) {
+        this(db, deckId, StudyQueue.DEFAULT_PAGE_SIZE);
+    }
+
+    public WeakCardsQueue(DatabaseManager db, long deckId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.db = db;
+        this.deckId = deckId;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public ScheduledCard next() {
+        while (true) {
+            if (page.isEmpty() && !exhausted) {
+                fill();
+            }
+            ScheduledCard card = page.poll();
+            if (card == null || asked.add(card.getCardId())) {
+                return card;
+            }
+        }
+    }
+
+    private void fill() {
+        List<ScheduledCard> cards = db.getWeakCards(deckId, lastEase, lastCardId, pageSize);
+        if (cards.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!cards.isEmpty()) {
+            lastEase = cards.getLast().getEase();
+            lastCardId = cards.getLast().getCardId();
+        }
+        page.addAll(cards);
+    }
+}
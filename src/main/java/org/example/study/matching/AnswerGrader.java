@@ -0,0 +1,46 @@
+package org.example.study.matching;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grades answers with an {@link AnswerMatcher}, caching the normalized form of each card's
+ * expected answer by card id. A cached entry is rebuilt when the card's answer text changed.
+ */
+public class AnswerGrader {
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    private final AnswerMatcher matcher;
+    private final int cacheSize;
+    private final ConcurrentHashMap<Long, NormalizedAnswer> expectedAnswers = new ConcurrentHashMap<>();
+
+    public AnswerGrader() {
+        this(AnswerMatchers.standard(), DEFAULT_CACHE_SIZE);
+    }
+
+    public AnswerGrader(AnswerMatcher matcher, int cacheSize) {
+        this.matcher = matcher;
+        this.cacheSize = cacheSize;
+    }
+
+    public boolean isCorrect(long cardId, String expectedAnswer, String userAnswer) {
+        return matcher.matches(expected(cardId, expectedAnswer), NormalizedAnswer.of(userAnswer));
+    }
+
+    public void invalidate(long cardId) {
+        expectedAnswers.remove(cardId);
+    }
+
+    private NormalizedAnswer expected(long cardId, String answer) {
+        NormalizedAnswer cached = expectedAnswers.get(cardId);
+        if (cached != null && cached.getRaw().equals(answer)) {
+            return cached;
+        }
+        if (expectedAnswers.size() >= cacheSize) {
+            // Rare and cheap to rebuild, so a full reset is enough to keep memory bounded
+            expectedAnswers.clear();
+        }
+        NormalizedAnswer normalized = NormalizedAnswer.of(answer);
+        expectedAnswers.put(cardId, normalized);
+        return normalized;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.study.matching;
+
+/**
+ * Strategy deciding whether a learner's answer counts as correct.
+ * Both sides arrive already normalized, so implementations only compare.
+ */
+@FunctionalInterface
+public interface AnswerMatcher {
+    boolean matches(NormalizedAnswer expected, NormalizedAnswer actual);
+
+    default AnswerMatcher or(AnswerMatcher other) {
+        return (expected, actual) -> matches(expected, actual) || other.matches(expected, actual);
+    }
+}
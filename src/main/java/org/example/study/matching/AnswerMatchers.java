@@ -0,0 +1,110 @@
+package org.example.study.matching;
+
+import java.util.Arrays;
+
+/**
+ * Built-in answer matchers.
+ */
+public final class AnswerMatchers {
+    private static final ThreadLocal<int[][]> ROWS = ThreadLocal.withInitial(() -> new int[2][64]);
+
+    private AnswerMatchers() {
+    }
+
+    /**
+     * Equal after normalization: case, accents, punctuation and extra whitespace are ignored.
+     */
+    public static AnswerMatcher normalizedExact() {
+        return (expected, actual) -> expected.getText().equals(actual.getText());
+    }
+
+    /**
+     * Allows up to maxDistance typos, but never more than one per four characters of the
+     * expected answer, so short answers such as "4" must still match exactly.
+     */
+    public static AnswerMatcher levenshtein(int maxDistance) {
+        return (expected, actual) -> {
+            String a = expected.getText();
+            int limit = Math.min(maxDistance, a.length() / 4);
+            return withinDistance(a, actual.getText(), limit);
+        };
+    }
+
+    /**
+     * Same distinct words in any order: "Washington George" matches "George Washington".
+     */
+    public static AnswerMatcher tokenSet() {
+        return (expected, actual) -> expected.getTokens().length > 0 && Arrays.equals(expected.getTokens(), actual.getTokens());
+    }
+
+    /**
+     * Both answers are numbers that differ by at most the given relative tolerance.
+     */
+    public static AnswerMatcher numeric(double relativeTolerance) {
+        return (expected, actual) -> {
+            double e = expected.getNumber();
+            double a = actual.getNumber();
+            if (Double.isNaN(e) || Double.isNaN(a)) {
+                return false;
+            }
+            return Math.abs(e - a) <= relativeTolerance * Math.max(1.0, Math.abs(e));
+        };
+    }
+
+    /**
+     * Matcher used by study mode: exact, numeric, token set and up to two typos, cheapest first.
+     */
+    public static AnswerMatcher standard() {
+        return normalizedExact().or(numeric(1e-9)).or(tokenSet()).or(levenshtein(2));
+    }
+
+    /**
+     * Levenshtein distance check limited to a diagonal band of width 2 * limit + 1,
+     * stopping as soon as every cell in a row exceeds the limit.
+     */
+    static boolean withinDistance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return false;
+        }
+        if (limit == 0) {
+            return a.equals(b);
+        }
+        int[][] rows = ROWS.get();
+        if (rows[0].length <= b.length()) {
+            rows[0] = new int[b.length() + 1];
+            rows[1] = new int[b.length() + 1];
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        int outside = limit + 1;
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j <= limit ? j : outside;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - limit);
+            int to = Math.min(b.length(), i + limit);
+            current[0] = i <= limit ? i : outside;
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, outside);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = outside;
+            }
+            if (rowMin > limit) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= limit;
+    }
+}
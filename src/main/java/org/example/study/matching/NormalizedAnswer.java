@@ -0,0 +1,167 @@
+package org.example.study.matching;
+
+import lombok.Getter;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Answer text reduced once to the forms the matchers compare: lower case, accents removed,
+ * punctuation dropped and whitespace collapsed, plus its sorted distinct tokens and numeric value.
+ * In numbers, commas in the form "1,234,567" group thousands, and a single comma in a number
+ * without a '.' is a decimal point; any other use of commas leaves the answer without a value.
+ * Built with plain character loops so that grading needs no regular expressions.
+ */
+@Getter
+public final class NormalizedAnswer {
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final String raw;
+    private final String text;
+    private final String[] tokens;
+    /**
+     * Parsed number, or NaN when the answer is not a number.
+     */
+    private final double number;
+
+    private NormalizedAnswer(String raw, String text, String[] tokens, double number) {
+        this.raw = raw;
+        this.text = text;
+        this.tokens = tokens;
+        this.number = number;
+    }
+
+    public static NormalizedAnswer of(String raw) {
+        String text = normalize(raw == null ? "" : raw);
+        return new NormalizedAnswer(raw, text, tokenize(text), parseNumber(raw));
+    }
+
+    static String normalize(String value) {
+        String source = isAscii(value) ? value : stripAccents(value);
+        StringBuilder out = new StringBuilder(source.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                if (pendingSpace && !out.isEmpty()) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+                out.append(Character.toLowerCase(ch));
+            } else if (ch != '\'') {
+                // Apostrophes vanish ("don't" -> "dont"), every other separator becomes one space
+                pendingSpace = true;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripAccents(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char ch = decomposed.charAt(i);
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                out.append(ch);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String[] tokenize(String text) {
+        if (text.isEmpty()) {
+            return NO_TOKENS;
+        }
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        String[] tokens = new String[count];
+        int start = 0;
+        int index = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            if (i == text.length() || text.charAt(i) == ' ') {
+                tokens[index++] = text.substring(start, i);
+                start = i + 1;
+            }
+        }
+        Arrays.sort(tokens);
+        int distinct = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i == 0 || !tokens[i].equals(tokens[distinct - 1])) {
+                tokens[distinct++] = tokens[i];
+            }
+        }
+        return distinct == tokens.length ? tokens : Arrays.copyOf(tokens, distinct);
+    }
+
+    private static double parseNumber(String raw) {
+        if (raw == null) {
+            return Double.NaN;
+        }
+        String value = raw.trim();
+        if (value.isEmpty() || value.length() > 32) {
+            return Double.NaN;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (!(ch >= '0' && ch <= '9') && ch != '.' && ch != ',' && ch != '-' && ch != '+' && ch != 'e' && ch != 'E') {
+                return Double.NaN;
+            }
+        }
+        int comma = value.indexOf(',');
+        if (comma >= 0) {
+            int sign = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+            int end = sign;
+            while (end < value.length() && (Character.isDigit(value.charAt(end)) || value.charAt(end) == ',')) {
+                end++;
+            }
+            if (isGrouped(value, sign, end)) {
+                // "1,000" and "1,234.5": the commas group thousands
+                value = value.replace(",", "");
+            } else if (value.indexOf('.') < 0 && value.indexOf(',', comma + 1) < 0) {
+                // "3,5": a lone comma is the decimal point
+                value = value.replace(',', '.');
+            } else {
+                // Neither form, so the answer is compared as text
+                return Double.NaN;
+            }
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * True if value[start, end) is 1 to 3 digits followed by one or more groups of a comma and 3 digits.
+     */
+    private static boolean isGrouped(String value, int start, int end) {
+        int digits = 0;
+        boolean grouped = false;
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) == ',') {
+                if (digits == 0 || digits > 3 || (grouped && digits != 3)) {
+                    return false;
+                }
+                grouped = true;
+                digits = 0;
+            } else {
+                digits++;
+            }
+        }
+        return grouped && digits == 3;
+    }
+}
@@ -0,0 +1,72 @@
+import org.example.study.matching.AnswerGrader;
+import org.example.study.matching.AnswerMatcher;
+import org.example.study.matching.AnswerMatchers;
+import org.example.study.matching.NormalizedAnswer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerMatcherTest {
+
+    private static boolean matches(AnswerMatcher matcher, String expected, String actual) {
+        return matcher.matches(NormalizedAnswer.of(expected), NormalizedAnswer.of(actual));
+    }
+
+    @Test
+    void testNormalizedExact() {
+        AnswerMatcher matcher = AnswerMatchers.normalizedExact();
+        assertTrue(matches(matcher, "George Washington", "  george   WASHINGTON! "));
+        assertTrue(matches(matcher, "Café Crème", "cafe creme"));
+        assertTrue(matches(matcher, "Don't panic", "dont panic"));
+        assertFalse(matches(matcher, "George Washington", "John Adams"));
+    }
+
+    @Test
+    void testLevenshtein() {
+        AnswerMatcher matcher = AnswerMatchers.levenshtein(2);
+        assertTrue(matches(matcher, "Washington", "Washingtn"));
+        assertTrue(matches(matcher, "Washington", "Wahsington"));
+        assertFalse(matches(matcher, "Washington", "Wshngtn"));
+        assertFalse(matches(matcher, "4", "5"));
+        assertFalse(matches(matcher, "Paris", "Rome"));
+    }
+
+    @Test
+    void testTokenSet() {
+        AnswerMatcher matcher = AnswerMatchers.tokenSet();
+        assertTrue(matches(matcher, "George Washington", "Washington, George"));
+        assertFalse(matches(matcher, "George Washington", "George"));
+    }
+
+    @Test
+    void testNumeric() {
+        AnswerMatcher matcher = AnswerMatchers.numeric(0.01);
+        assertTrue(matches(matcher, "3.14", "3,14"));
+        assertTrue(matches(matcher, "100", "100.5"));
+        assertFalse(matches(matcher, "100", "102"));
+        assertFalse(matches(matcher, "1939", "nineteen"));
+    }
+
+    @Test
+    void testNumericReadsThousandsSeparators() {
+        AnswerMatcher matcher = AnswerMatchers.numeric(1e-9);
+        assertTrue(matches(matcher, "1,000", "1000"));
+        assertFalse(matches(matcher, "1,000", "1"));
+        assertTrue(matches(matcher, "1,234,567.5", "1234567.5"));
+        assertTrue(matches(matcher, "3,5", "3.5"));
+        assertTrue(matches(matcher, "-2,5", "-2.5"));
+        // Commas that neither group thousands nor mark the only decimal point give no number
+        assertTrue(Double.isNaN(NormalizedAnswer.of("1,2,3").getNumber()));
+        assertTrue(Double.isNaN(NormalizedAnswer.of("12,34.5").getNumber()));
+        assertFalse(matches(AnswerMatchers.standard(), "1,000", "1"));
+        assertTrue(matches(AnswerMatchers.standard(), "1,000", "1000"));
+    }
+
+    @Test
+    void testGraderRebuildsCachedAnswerAfterEdit() {
+        AnswerGrader grader = new AnswerGrader();
+        assertTrue(grader.isCorrect(1, "Paris", "paris"));
+        assertFalse(grader.isCorrect(1, "Rome", "paris"));
+        assertTrue(grader.isCorrect(1, "Rome", "rome"));
+    }
+}
@@ -0,0 +1,119 @@
+import org.example.cli.BatchCli;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCliTest {
+    private static final String DECKS = "[{\"name\":\"Capitals\",\"cards\":[{\"question\":\"France?\",\"answer\":\"Paris\"},"
+            + "{\"question\":\"Spain?\",\"answer\":\"Madrid\"}]}]";
+
+    @TempDir
+    Path tempDir;
+
+    private String dbPath;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @BeforeEach
+    void setUp() {
+        dbPath = tempDir.resolve("cli.db").toString();
+    }
+
+    @Test
+    void testImportFromStdinAndExportToStdout() {
+        assertEquals(BatchCli.EXIT_OK, run(DECKS, "import", "--db", dbPath, "-"));
+        assertTrue(err().contains("Imported 2 cards into 1 decks"));
+
+        assertEquals(BatchCli.EXIT_OK, run("", "export", "--db", dbPath, "--quiet"));
+        assertTrue(out().startsWith("[{\"id\":1,\"name\":\"Capitals\""));
+        assertEquals("", err());
+
+        assertEquals(BatchCli.EXIT_OK, run("", "stats", "--db", dbPath));
+        assertTrue(out().contains("decks\t1\ncards\t2\ndeck\t1\tCapitals\t2\n"));
+
+        assertEquals(BatchCli.EXIT_OK, run("", "report", "--db", dbPath, "--days", "3"));
+        assertTrue(out().startsWith("Accuracy per deck:\n  No reviews yet."));
+    }
+
+    @Test
+    void testDeltaExportFeedsAnotherDatabase() throws Exception {
+        run(DECKS, "import", "--db", dbPath);
+        Path delta = tempDir.resolve("delta.json");
+        assertEquals(BatchCli.EXIT_OK, run("", "export", "--db", dbPath, "--since", "0", delta.toString()));
+        assertTrue(err().contains("Changes up to sequence"));
+
+        String replica = tempDir.resolve("replica.db").toString();
+        assertEquals(BatchCli.EXIT_OK, run(Files.readString(delta), "import", "--db", replica));
+        run("", "stats", "--db", replica);
+        assertTrue(out().contains("cards\t2\n"));
+    }
+
+    @Test
+    void testRejectedRowsGivePartialExitCode() throws Exception {
+        Path csv = tempDir.resolve("cards.csv");
+        Files.writeString(csv, "Q1,A1\nmissing answer,\nQ2,A2\n");
+        assertEquals(BatchCli.EXIT_PARTIAL, run("", "import", "--db", dbPath, "--deck", "Default", csv.toString()));
+        assertTrue(err().contains("line 2: Question and answer cannot be empty"));
+        assertTrue(err().contains("Imported 2 cards"));
+    }
+
+    @Test
+    void testUsageAndFailureExitCodes() {
+        assertEquals(BatchCli.EXIT_USAGE, run("", "export", "--db", dbPath, "--bogus", "1"));
+        assertTrue(err().contains("Unknown option --bogus"));
+        assertEquals(BatchCli.EXIT_USAGE, run("", "import", "--db"));
+        assertEquals(BatchCli.EXIT_USAGE, run("", "export", "--since", "soon"));
+        assertEquals(BatchCli.EXIT_FAILURE, run("[{\"name\":", "import", "--db", dbPath));
+        assertEquals(BatchCli.EXIT_FAILURE, run("", "import", "--db", dbPath, tempDir.resolve("missing.json").toString()));
+        assertEquals(BatchCli.EXIT_OK, run("", "help"));
+        assertTrue(out().startsWith("Usage:"));
+    }
+
+    @Test
+    void testVacuumAndBench() {
+        run(DECKS, "import", "--db", dbPath);
+        assertEquals(BatchCli.EXIT_OK, run("", "vacuum", "--db", dbPath, "--prune-tombstones", "100"));
+        assertTrue(err().contains("Pruned 0 tombstones"));
+        assertTrue(err().contains("Vacuumed"));
+
+        assertEquals(BatchCli.EXIT_OK, run("", "bench", "--cards", "2000"));
+        String[] lines = out().split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("populate\t2000\t"));
+        assertTrue(lines[2].startsWith("import.json\t2000\t"));
+    }
+
+    @Test
+    void testLoadTestOnTemporaryDatabase() {
+        assertEquals(BatchCli.EXIT_OK, run("", "loadtest", "--learners", "4", "--seconds", "1", "--cards", "200", "--deck-size", "50"));
+        assertTrue(err().contains("Populated 200 cards"));
+        assertTrue(out().startsWith("workload\t"));
+        assertTrue(out().contains("\ntotal\t"));
+        assertEquals(BatchCli.EXIT_USAGE, run("", "loadtest", "--mix", "1,2"));
+        assertEquals(BatchCli.EXIT_USAGE, run("", "loadtest", "--skew", "0.5", "--seconds", "1"));
+    }
+
+    private int run(String stdin, String... args) {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        return BatchCli.run(args, new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -1,55 +1,57 @@
+import org.example.db.CardStats;
+import org.example.db.DailyStats;
 import org.example.db.DatabaseManager;
+import org.example.db.DeckStats;
+import org.example.db.DeckSummary;
+import org.example.db.DuplicateCardException;
+import org.example.db.ImportResult;
+import org.example.db.SearchHit;
 import org.example.enteties.Card;
 import org.example.enteties.Deck;
+import org.example.enteties.Review;
+import org.example.json.JsonManager;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
-import java.lang.reflect.Field;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class DatabaseManagerTest {
     private DatabaseManager db;
-    private Connection testConnection;
 
     /**
-     * Before each test, we create an in-memory SQLite database and set it in the DatabaseManager instance.
+     * Before each test, we open a DatabaseManager on a fresh in-memory SQLite database.
      * This allows us to test the database operations without affecting a real database file.
      */
     @BeforeEach
-    void setUp() throws SQLException, NoSuchFieldException, IllegalAccessException {
-        testConnection = DriverManager.getConnection("jdbc:sqlite::memory:");
-
-        db = DatabaseManager.getInstance();
-
-        Field connectionField = DatabaseManager.class.getDeclaredField("connection");
-        connectionField.setAccessible(true);
-        connectionField.set(db, testConnection);
-
-        createTestTables();
-
-        clearTables();
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
     }
 
-    private void createTestTables() throws SQLException {
-        String decksSql = "CREATE TABLE IF NOT EXISTS decks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE NOT NULL);";
-        String cardsSql = "CREATE TABLE IF NOT EXISTS cards (id INTEGER PRIMARY KEY AUTOINCREMENT, deck_id INTEGER, question TEXT NOT NULL, answer TEXT NOT NULL, FOREIGN KEY(deck_id) REFERENCES decks(id) ON DELETE CASCADE);";
-        try (Statement stmt = testConnection.createStatement()) {
-            stmt.execute(decksSql);
-            stmt.execute(cardsSql);
-        }
-    }
-
-    private void clearTables() throws SQLException {
-        try (Statement stmt = testConnection.createStatement()) {
-            stmt.execute("DELETE FROM cards");
-            stmt.execute("DELETE FROM decks");
-        }
+    @AfterEach
+    void tearDown() {
+        db.close();
     }
 
     @Test
@@ -69,6 +71,52 @@ class DatabaseManagerTest {
         assertTrue(decks.isEmpty());
     }
 
+    @Test
+    void testDeleteDeckCascadesToCards() {
+        long id = db.createDeck("CascadeDeck");
+        db.addCard(id, "Q", "A");
+        db.deleteDeck(id);
+        assertTrue(db.getCardsForDeck(id).isEmpty());
+    }
+
+    @Test
+    void testMigrationsUpgradeLegacySchema(@TempDir Path tempDir) throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("legacy.db");
+        try (Connection legacy = DriverManager.getConnection(url); Statement stmt = legacy.createStatement()) {
+            stmt.execute("CREATE TABLE decks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE NOT NULL)");
+            stmt.execute("CREATE TABLE cards (id INTEGER PRIMARY KEY AUTOINCREMENT, deck_id INTEGER, question TEXT NOT NULL, answer TEXT NOT NULL, FOREIGN KEY(deck_id) REFERENCES decks(id) ON DELETE CASCADE)");
+            stmt.execute("INSERT INTO decks (name) VALUES ('Kept')");
+            stmt.execute("INSERT INTO cards (deck_id, question, answer) VALUES (1, 'Q', 'A'), (42, 'Orphan', 'A')");
+        }
+        try (DatabaseManager legacyDb = DatabaseManager.open(url)) {
+            assertTrue(legacyDb.getSchemaVersion() >= 2);
+            assertEquals(1, legacyDb.getDeckSummaries().getFirst().getCardCount());
+            assertTrue(legacyDb.getCardsForDeck(42).isEmpty());
+        }
+    }
+
+    @Test
+    void testMigrationKeepsRepeatedCards(@TempDir Path tempDir) throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("duplicates.db");
+        try (Connection legacy = DriverManager.getConnection(url); Statement stmt = legacy.createStatement()) {
+            stmt.execute("CREATE TABLE decks (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE NOT NULL)");
+            stmt.execute("CREATE TABLE cards (id INTEGER PRIMARY KEY AUTOINCREMENT, deck_id INTEGER, question TEXT NOT NULL, answer TEXT NOT NULL, FOREIGN KEY(deck_id) REFERENCES decks(id) ON DELETE CASCADE)");
+            stmt.execute("INSERT INTO decks (name) VALUES ('Doubled'), ('Other')");
+            stmt.execute("INSERT INTO cards (deck_id, question, answer) VALUES (1, 'Q', 'Old'), (1, ' q ', 'New'), (1, 'Second', 'A'), (1, 'second', 'a'), (2, 'Q', 'Kept')");
+        }
+        try (DatabaseManager legacyDb = DatabaseManager.open(url)) {
+            assertEquals(List.of("Q:Old", " q :New", "Second:A", "second:a"), contents(legacyDb, "Doubled"));
+            assertEquals("Kept", legacyDb.getCardsForDeck(2).getFirst().getAnswer());
+            DuplicateCardException duplicate = assertThrows(DuplicateCardException.class, () -> legacyDb.addCard(1, "SECOND", "A"));
+            assertEquals(3, duplicate.getExistingCardId());
+            // Repeats are only skipped from now on, and the same question may carry another answer
+            ImportResult result = legacyDb.importDecks(List.of(legacyDb.getDeckByName("Doubled")));
+            assertEquals(4, result.getSkippedCards());
+            legacyDb.addCard(1, "Second", "B");
+            assertEquals(5, legacyDb.getCardsForDeck(1).size());
+        }
+    }
+
     @Test
     void testAddCard() throws SQLException {
         long deckId = db.createDeck("CardDeck1");
@@ -79,6 +127,27 @@ class DatabaseManagerTest {
         assertEquals("A1", cards.getFirst().getAnswer());
     }
 
+    @Test
+    void testDuplicateCardIsRejectedClearly() {
+        long deckId = db.createDeck("Duplicates");
+        long otherId = db.createDeck("Other");
+        db.addCard(deckId, "What is 2+2?", "4");
+        db.addCard(deckId, "What is 3+3?", "6");
+        List<Card> cards = db.getCardsForDeck(deckId);
+
+        DuplicateCardException added = assertThrows(DuplicateCardException.class, () -> db.addCard(deckId, "  what IS 2+2? ", "4"));
+        assertEquals(cards.getFirst().getId(), added.getExistingCardId());
+        DuplicateCardException updated = assertThrows(DuplicateCardException.class,
+                () -> db.updateCard(cards.get(1).getId(), "What is 2+2?", "4"));
+        assertEquals(cards.getFirst().getId(), updated.getExistingCardId());
+
+        // The same question with another answer, the same card elsewhere, or a card keeping its own text is fine
+        db.addCard(deckId, "What is 2+2?", "four");
+        db.addCard(otherId, "What is 2+2?", "4");
+        db.updateCard(cards.getFirst().getId(), "what is 2+2?", "4");
+        assertEquals(List.of("what is 2+2?:4", "What is 3+3?:6", "What is 2+2?:four"), contents(db, "Duplicates"));
+    }
+
     @Test
     void testUpdateCard() throws SQLException {
         long deckId = db.createDeck("UpdateDeck1");
@@ -108,4 +177,403 @@ class DatabaseManagerTest {
         assertTrue(id1 > 0);
         assertThrows(SQLException.class, () -> db.createDeck("DuplicateDeck"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDeckSummaries() {
+        long first = db.createDeck("Summary1");
+        db.addCard(first, "Q1", "A1");
+        db.addCard(first, "Q2", "A2");
+        db.createDeck("Summary2");
+        List<DeckSummary> summaries = db.getDeckSummaries();
+        assertEquals(2, summaries.size());
+        assertEquals("Summary1", summaries.getFirst().getName());
+        assertEquals(2, summaries.getFirst().getCardCount());
+        assertEquals(0, summaries.get(1).getCardCount());
+    }
+
+    @Test
+    void testDeckCardsLoadLazily() {
+        long deckId = db.createDeck("LazyDeck");
+        Deck deck = db.getDeckById(deckId);
+        db.addCard(deckId, "Q", "A");
+        assertEquals(1, deck.getCards().size());
+        db.addCard(deckId, "Q2", "A2");
+        assertEquals(1, deck.getCards().size());
+    }
+
+    @Test
+    void testDeckEqualityDoesNotLoadCards() {
+        long deckId = db.createDeck("Untouched");
+        db.addCard(deckId, "Q", "A");
+        OperationMetrics loads = Metrics.operation("db.getCardsForDeck");
+        long before = loads.getCalls();
+        Deck deck = db.getDeckById(deckId);
+        Deck same = db.getDeckById(deckId);
+        assertEquals(deck, same);
+        assertEquals(deck.hashCode(), same.hashCode());
+        assertFalse(deck.toString().contains("cards"));
+        assertEquals(before, loads.getCalls());
+        assertEquals(1, deck.getCards().size());
+        assertEquals(before + 1, loads.getCalls());
+    }
+
+    @Test
+    void testSearchCards() {
+        long history = db.createDeck("History");
+        long math = db.createDeck("Math");
+        db.addCard(history, "When did World War 2 start?", "1939");
+        db.addCard(history, "Who was the first president of the USA?", "George Washington");
+        db.addCard(math, "What is 2+2?", "4");
+
+        List<SearchHit> hits = db.searchCards("president", null, 10);
+        assertEquals(1, hits.size());
+        assertEquals("George Washington", hits.getFirst().getAnswer());
+        assertEquals(history, hits.getFirst().getDeckId());
+
+        assertEquals(1, db.searchCards("Wash", null, 10).size());
+        assertTrue(db.searchCards("what \"is", history, 10).isEmpty());
+        assertEquals(1, db.searchCards("what is", math, 10).size());
+    }
+
+    @Test
+    void testSearchFollowsCardUpdatesAndDeletes() {
+        long deckId = db.createDeck("SearchSync");
+        db.addCard(deckId, "Capital of France?", "Paris");
+        long cardId = db.getCardsForDeck(deckId).getFirst().getId();
+
+        db.updateCard(cardId, "Capital of Italy?", "Rome");
+        assertTrue(db.searchCards("Paris", null, 10).isEmpty());
+        assertEquals(1, db.searchCards("Rome", null, 10).size());
+
+        db.deleteDeck(deckId);
+        assertTrue(db.searchCards("Rome", null, 10).isEmpty());
+    }
+
+    @Test
+    void testImportDecks() {
+        db.createDeck("Existing");
+        Deck existing = deckWithCards("Existing", 2);
+        Deck fresh = deckWithCards("Fresh", 5);
+
+        ImportResult result = db.importDecks(List.of(existing, fresh), 2);
+
+        assertEquals(2, result.getImportedDecks());
+        assertEquals(7, result.getImportedCards());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(2, db.getAllDecks().size());
+        assertEquals(5, db.getDeckByName("Fresh").getCards().size());
+    }
+
+    @Test
+    void testReimportSkipsAndUpdatesExistingCards() {
+        ImportResult first = db.importDecks(List.of(deckWithCards("Synced", 5)), 2);
+        assertEquals(5, first.getInsertedCards());
+
+        Deck changed = deckWithCards("Synced", 6);
+        changed.getCards().get(1).setAnswer("Changed");
+        changed.getCards().get(2).setQuestion("  q2 ");
+        Card repeated = new Card();
+        repeated.setQuestion("Q5");
+        repeated.setAnswer("A5");
+        changed.getCards().add(repeated);
+
+        ImportResult second = db.importDecks(List.of(changed), 2);
+
+        assertEquals(7, second.getImportedCards());
+        assertEquals(1, second.getInsertedCards());
+        assertEquals(2, second.getUpdatedCards());
+        assertEquals(4, second.getSkippedCards());
+        List<Card> cards = db.getCardsForDeck(db.getDeckByName("Synced").getId());
+        assertEquals(6, cards.size());
+        assertEquals("Changed", cards.get(1).getAnswer());
+        assertEquals("  q2 ", cards.get(2).getQuestion());
+    }
+
+    @Test
+    void testImportDecksRollsBackFailedDeck() {
+        Deck good = deckWithCards("Good", 3);
+        Deck bad = deckWithCards("Bad", 3);
+        bad.getCards().get(2).setAnswer(" ");
+
+        ImportResult result = db.importDecks(List.of(bad, good), 2);
+
+        assertEquals(1, result.getImportedDecks());
+        assertEquals(3, result.getImportedCards());
+        assertTrue(result.getFailures().containsKey("Bad"));
+        assertNull(db.getDeckByName("Bad"));
+        assertEquals(3, db.getDeckByName("Good").getCards().size());
+    }
+
+    @Test
+    void testStreamingJsonRoundTrip(@TempDir Path tempDir) {
+        long deckId = db.createDeck("Streamed");
+        db.addCard(deckId, "Q1", "A1");
+        db.addCard(deckId, "Q2", "A2");
+        db.createDeck("Empty");
+        String file = tempDir.resolve("stream.json").toString();
+
+        assertTrue(JsonManager.exportDecksStreaming(db, file));
+        List<Deck> loaded = JsonManager.loadDecksFromJson(file);
+        assertEquals(2, loaded.size());
+        assertEquals("Streamed", loaded.getFirst().getName());
+        assertEquals(2, loaded.getFirst().getCards().size());
+        assertTrue(loaded.get(1).getCards().isEmpty());
+
+        db.deleteDeck(deckId);
+        ImportResult result = JsonManager.importDecksStreaming(db, file);
+        assertNotNull(result);
+        assertEquals(2, result.getImportedDecks());
+        assertEquals(2, result.getImportedCards());
+        assertEquals("A2", db.getDeckByName("Streamed").getCards().get(1).getAnswer());
+    }
+
+    @Test
+    void testDeltaSyncReplaysOnlyChanges(@TempDir Path tempDir) {
+        long keep = db.createDeck("Keep");
+        db.addCard(keep, "Q1", "A1");
+        db.addCard(keep, "Q2", "A2");
+        long gone = db.createDeck("Gone");
+        db.addCard(gone, "G1", "A");
+        try (DatabaseManager replica = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            String full = tempDir.resolve("full.json").toString();
+            long synced = JsonManager.exportDelta(db, 0, full);
+            assertEquals(db.getChangeSequence(), synced);
+            assertEquals(3, JsonManager.importDecksStreaming(replica, full).getInsertedCards());
+
+            List<Card> cards = db.getCardsForDeck(keep);
+            db.updateCard(cards.get(0).getId(), "Q1", "changed");
+            db.updateCard(cards.get(1).getId(), "Q2 renamed", "A2");
+            db.deleteDeck(gone);
+            db.createDeck("Gone");
+            db.createDeck("New");
+            String delta = tempDir.resolve("delta.json").toString();
+            assertTrue(JsonManager.exportDelta(db, synced, delta) > synced);
+
+            ImportResult result = JsonManager.importDecksStreaming(replica, delta);
+            assertEquals(1, result.getDeletedDecks());
+            assertEquals(1, result.getDeletedCards());
+            assertEquals(1, result.getInsertedCards());
+            assertEquals(1, result.getUpdatedCards());
+            // Replaying converges on the same state; the recreated deck is simply recreated again
+            result = JsonManager.importDecksStreaming(replica, delta);
+            assertEquals(0, result.getDeletedCards());
+            assertEquals(0, result.getInsertedCards() + result.getUpdatedCards());
+            assertEquals(List.of("Q1:changed", "Q2 renamed:A2"), contents(replica, "Keep"));
+            assertTrue(contents(replica, "Gone").isEmpty());
+            assertNotNull(replica.getDeckByName("New"));
+        }
+    }
+
+    @Test
+    void testDeltaIsEmptyWithoutChangesAndSkipsCascadedCards(@TempDir Path tempDir) throws Exception {
+        long deckId = db.createDeck("Deck");
+        db.addCard(deckId, "Q", "A");
+        long since = db.getChangeSequence();
+        assertEquals(since, JsonManager.exportDelta(db, since, tempDir.resolve("none.json").toString()));
+        assertEquals("{\"since\":" + since + ",\"deletedDecks\":[],\"decks\":[],\"deletedCards\":[],\"until\":" + since + "}",
+                Files.readString(tempDir.resolve("none.json")));
+
+        db.deleteDeck(deckId);
+        StringWriter out = new StringWriter();
+        JsonManager.exportDelta(db, since, out);
+        assertEquals("{\"since\":" + since + ",\"deletedDecks\":[\"Deck\"],\"decks\":[],\"deletedCards\":[],\"until\":" + (since + 1) + "}",
+                out.toString());
+        assertEquals(1, db.pruneTombstones(since + 1));
+    }
+
+    private static List<String> contents(DatabaseManager db, String deckName) {
+        return db.getCardsForDeck(db.getDeckByName(deckName).getId()).stream()
+                .map(card -> card.getQuestion() + ":" + card.getAnswer())
+                .toList();
+    }
+
+    @Test
+    void testConcurrentReadersAndWriters(@TempDir Path tempDir) throws Exception {
+        try (DatabaseManager fileDb = DatabaseManager.open("jdbc:sqlite:" + tempDir.resolve("concurrent.db"))) {
+            long deckId = fileDb.createDeck("Concurrent");
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    int thread = t;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 50; i++) {
+                            fileDb.addCard(deckId, "Q" + thread + "-" + i, "A");
+                            fileDb.getDeckSummaries();
+                            fileDb.getCardsForDeck(deckId);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(400, fileDb.getCardsForDeck(deckId).size());
+        }
+    }
+
+    @Test
+    void testCardsPageWalksDeckInIdOrder() {
+        db.importDecks(List.of(deckWithCards("Paged", 25), deckWithCards("Other", 5)));
+        long deckId = db.getDeckByName("Paged").getId();
+
+        List<String> questions = new ArrayList<>();
+        long afterId = 0;
+        List<Card> page = db.getCardsPage(deckId, afterId, 10);
+        while (!page.isEmpty()) {
+            assertTrue(page.getFirst().getId() > afterId);
+            page.forEach(card -> questions.add(card.getQuestion()));
+            afterId = page.getLast().getId();
+            page = db.getCardsPage(deckId, afterId, 10);
+        }
+        assertEquals(25, questions.size());
+        assertEquals("Q0", questions.getFirst());
+        assertEquals("Q24", questions.getLast());
+
+        String plan = db.read(c -> {
+            StringBuilder details = new StringBuilder();
+            try (ResultSet rs = c.getConnection().createStatement().executeQuery(
+                    "EXPLAIN QUERY PLAN SELECT id, question, answer FROM cards WHERE deck_id = 1 AND id > 5 ORDER BY id LIMIT 10")) {
+                while (rs.next()) {
+                    details.append(rs.getString("detail")).append('\n');
+                }
+            }
+            return details.toString();
+        });
+        assertFalse(plan.contains("TEMP B-TREE"), plan);
+    }
+
+    @Test
+    void testStreamCardsReleasesConnectionOnClose() throws Exception {
+        db.importDecks(List.of(deckWithCards("Streamed", 50)));
+        long deckId = db.getDeckByName("Streamed").getId();
+
+        try (Stream<Card> cards = db.streamCards(deckId)) {
+            assertEquals(50, cards.count());
+        }
+        try (Stream<Card> cards = db.streamCards(deckId)) {
+            assertEquals(List.of("Q0", "Q1", "Q2"), cards.limit(3).map(Card::getQuestion).toList());
+        }
+        // The in-memory database has only the writer, so another thread would block if a stream still held it
+        CompletableFuture.runAsync(() -> db.addCard(deckId, "Q50", "A50")).get(5, TimeUnit.SECONDS);
+        assertEquals(51, db.getCardsPage(deckId, 0, 100).size());
+    }
+
+    @Test
+    void testCloseWaitsForLeasedReaders(@TempDir Path tempDir) throws Exception {
+        DatabaseManager fileDb = DatabaseManager.open("jdbc:sqlite:" + tempDir.resolve("close.db"), 2);
+        fileDb.importDecks(List.of(deckWithCards("Streamed", 50)));
+        long deckId = fileDb.getDeckByName("Streamed").getId();
+        CompletableFuture<Void> closing;
+        try (Stream<Card> cards = fileDb.streamCards(deckId)) {
+            Iterator<Card> iterator = cards.iterator();
+            assertEquals("Q0", iterator.next().getQuestion());
+            closing = CompletableFuture.runAsync(fileDb::close);
+            Thread.sleep(200);
+            assertFalse(closing.isDone());
+            // The leased reader keeps working until it is returned
+            int rest = 0;
+            while (iterator.hasNext()) {
+                iterator.next();
+                rest++;
+            }
+            assertEquals(49, rest);
+        }
+        closing.get(5, TimeUnit.SECONDS);
+        assertThrows(IllegalStateException.class, fileDb::getDeckSummaries);
+    }
+
+    @Test
+    void testScheduleFollowsCardToAnotherDeck() {
+        long from = db.createDeck("From");
+        long to = db.createDeck("To");
+        db.addCard(from, "Q", "A");
+        long cardId = db.getCardsForDeck(from).getFirst().getId();
+        db.write(c -> {
+            try (Statement stmt = c.getConnection().createStatement()) {
+                return stmt.executeUpdate("UPDATE cards SET deck_id = " + to + " WHERE id = " + cardId);
+            }
+        });
+        assertTrue(db.getDueCards(from, Long.MAX_VALUE, Long.MIN_VALUE, 0, 10).isEmpty());
+        assertEquals(List.of(cardId), db.getDueCards(to, Long.MAX_VALUE, Long.MIN_VALUE, 0, 10).stream().map(card -> card.getCardId()).toList());
+        assertEquals(to, db.getScheduledCard(cardId).getDeckId());
+    }
+
+    private Deck deckWithCards(String name, int count) {
+        Deck deck = new Deck();
+        deck.setName(name);
+        for (int i = 0; i < count; i++) {
+            Card card = new Card();
+            card.setQuestion("Q" + i);
+            card.setAnswer("A" + i);
+            deck.getCards().add(card);
+        }
+        return deck;
+    }
+
+    @Test
+    void testReviewRollupsFollowSavedReviews() {
+        long deckId = db.createDeck("Capitals");
+        long otherId = db.createDeck("Unstudied");
+        db.addCard(deckId, "France?", "Paris");
+        db.addCard(deckId, "Spain?", "Madrid");
+        db.addCard(deckId, "Peru?", "Lima");
+        List<Card> cards = db.getCardsForDeck(deckId);
+        long day = 20_000;
+        long dayStart = day * 86_400_000L;
+        db.saveReviews(List.of(
+                review(deckId, cards.get(0), true, dayStart + 10), review(deckId, cards.get(0), false, dayStart + 20),
+                review(deckId, cards.get(1), false, dayStart + 30), review(deckId, cards.get(2), true, dayStart + 40)));
+        db.saveReviews(List.of(review(deckId, cards.get(0), false, dayStart + 86_400_000L), review(deckId, cards.get(1), true, dayStart + 86_400_000L)));
+
+        assertEquals(List.of(new DeckStats(deckId, "Capitals", 6, 3), new DeckStats(otherId, "Unstudied", 0, 0)), db.getDeckStats());
+        assertEquals(new CardStats(cards.get(0).getId(), deckId, "France?", 3, 1, dayStart + 86_400_000L), db.getCardStats(cards.get(0).getId()));
+        assertNull(db.getCardStats(-1));
+        assertEquals(List.of(new DailyStats(day, 4, 2), new DailyStats(day + 1, 2, 1)), db.getDailyStats(deckId, day - 7, day + 1));
+        assertEquals(List.of(new DailyStats(day, 4, 2)), db.getDailyStats(null, day, day));
+        assertTrue(db.getDailyStats(otherId, day, day + 1).isEmpty());
+
+        // France 1/3 before Spain 1/2; Peru has too few reviews
+        assertEquals(List.of("France?", "Spain?"), db.getHardestCards(deckId, 2, 10).stream().map(CardStats::getQuestion).toList());
+        assertEquals(1, db.getHardestCards(null, 1, 1).size());
+
+        // A deleted card takes its rollup row along, but the deck keeps its history
+        db.deleteCard(cards.get(0).getId());
+        db.saveReviews(List.of(review(deckId, cards.get(0), true, dayStart + 50)));
+        assertNull(db.getCardStats(cards.get(0).getId()));
+        assertEquals(6, db.getDeckStats().getFirst().getReviews());
+    }
+
+    @Test
+    void testRollupMigrationBackfillsFromReviewLog(@TempDir Path tempDir) throws SQLException {
+        String url = "jdbc:sqlite:" + tempDir.resolve("rollups.db");
+        try (DatabaseManager fileDb = DatabaseManager.open(url)) {
+            long deckId = fileDb.createDeck("Capitals");
+            fileDb.addCard(deckId, "France?", "Paris");
+            Card card = fileDb.getCardsForDeck(deckId).getFirst();
+            fileDb.saveReviews(List.of(review(deckId, card, true, 1_000), review(deckId, card, false, 2_000)));
+        }
+        try (Connection connection = DriverManager.getConnection(url); Statement stmt = connection.createStatement()) {
+            // Undo step 9, and step 11 so that it can run again
+            stmt.execute("DROP TABLE card_stats");
+            stmt.execute("DROP TABLE deck_daily_stats");
+            stmt.execute("DROP TRIGGER trg_cards_change_delete");
+            stmt.execute("DROP TRIGGER trg_cards_change_rekey");
+            stmt.execute("DROP INDEX idx_cards_deck_question");
+            stmt.execute("ALTER TABLE cards DROP COLUMN question_hash");
+            stmt.execute("ALTER TABLE change_tombstones DROP COLUMN answer");
+            stmt.execute("PRAGMA user_version = 8");
+        }
+        try (DatabaseManager fileDb = DatabaseManager.open(url)) {
+            assertEquals(2, fileDb.getDeckStats().getFirst().getReviews());
+            assertEquals(List.of(new DailyStats(0, 2, 1)), fileDb.getDailyStats(null, 0, 0));
+            assertEquals(2_000, fileDb.getHardestCards(null, 1, 1).getFirst().getLastReviewedAt());
+        }
+    }
+
+    private static Review review(long deckId, Card card, boolean correct, long reviewedAt) {
+        return new Review(card.getId(), deckId, correct ? 4 : 1, correct, reviewedAt, 1, 2.5, 1, reviewedAt);
+    }
+}
@@ -0,0 +1,126 @@
+import org.example.cache.CardStore;
+import org.example.cache.DeckCache;
+import org.example.db.DatabaseManager;
+import org.example.enteties.Deck;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckCacheTest {
+    private DatabaseManager db;
+    private DeckCache cache;
+
+    @BeforeEach
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+        cache = new DeckCache(db, 2, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void testRepeatReadsHitTheCache() {
+        long deckId = db.createDeck("Cached");
+        db.addCard(deckId, "Q", "A");
+        Deck first = cache.getDeckById(deckId);
+        Deck second = cache.getDeckById(deckId);
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertThrows(UnsupportedOperationException.class, () -> first.getCards().clear());
+    }
+
+    @Test
+    void testWritesInvalidateOnlyTheAffectedDeck() {
+        long a = db.createDeck("A");
+        long b = db.createDeck("B");
+        db.addCard(a, "QA", "AA");
+        db.addCard(b, "QB", "AB");
+        Deck deckB = cache.getDeckById(b);
+        cache.getDeckById(a);
+
+        long cardId = cache.getDeckById(a).getCards().getFirst().getId();
+        cache.updateCard(cardId, "QA2", "AA2");
+        assertEquals("QA2", cache.getDeckById(a).getCards().getFirst().getQuestion());
+        assertSame(deckB, cache.getDeckById(b));
+
+        cache.addCard(a, "QA3", "AA3");
+        assertEquals(2, cache.getDeckById(a).getCards().size());
+
+        cache.deleteDeck(a);
+        assertNull(cache.getDeckById(a));
+        assertSame(deckB, cache.getDeckById(b));
+    }
+
+    @Test
+    void testLeastRecentlyUsedDeckIsEvicted() {
+        long a = db.createDeck("A");
+        long b = db.createDeck("B");
+        long c = db.createDeck("C");
+        cache.getDeckById(a);
+        cache.getDeckById(b);
+        cache.getDeckById(a);
+        cache.getDeckById(c);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+
+        long misses = cache.getMisses();
+        cache.getDeckById(a);
+        assertEquals(misses, cache.getMisses());
+        cache.getDeckById(b);
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void testWeightBound() {
+        DeckCache small = new DeckCache(db, 10, 50);
+        long a = db.createDeck("A");
+        long b = db.createDeck("B");
+        db.addCard(a, "Q", "A");
+        db.addCard(b, "Q", "A");
+        small.getDeckById(a);
+        small.getDeckById(b);
+        assertEquals(1, small.getSize());
+        assertTrue(small.getWeight() <= 50);
+    }
+
+    @Test
+    void testCardStoreDecodesOnDemandAndSharesAnswers() {
+        CardStore.Builder builder = new CardStore.Builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add(i * 2 + 1, "Frage " + i + " – größer?", i % 2 == 0 ? "Ja" : "Nein");
+        }
+        CardStore store = builder.build();
+        assertEquals(1000, store.size());
+        assertEquals(2, store.getDistinctAnswers());
+        assertEquals("Frage 7 – größer?", store.getQuestion(7));
+        assertEquals("Nein", store.getAnswer(7));
+        assertEquals(7, store.indexOf(15));
+        assertEquals(-1, store.indexOf(16));
+        assertEquals(15, store.asList().get(7).getId());
+        assertThrows(IllegalArgumentException.class, () -> new CardStore.Builder().add(2, "Q", "A").add(1, "Q", "A"));
+    }
+
+    @Test
+    void testCachedDeckIsBackedByCardStore() {
+        long deckId = db.createDeck("Compact");
+        db.addCard(deckId, "Q1", "Same");
+        db.addCard(deckId, "Q2", "Same");
+        CardStore store = cache.getCardStore(deckId);
+        assertEquals(2, store.size());
+        assertEquals(1, store.getDistinctAnswers());
+        assertEquals(store.getByteSize(), cache.getWeight());
+        assertEquals("Q2", cache.getDeckById(deckId).getCards().get(1).getQuestion());
+        assertEquals(1, cache.getHits());
+
+        cache.updateCard(store.getId(0), "Q1", "Changed");
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getCardStore(deckId).getDistinctAnswers());
+        assertNull(cache.getCardStore(-1));
+    }
+}
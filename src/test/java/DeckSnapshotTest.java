@@ -0,0 +1,111 @@
+import org.example.db.DatabaseManager;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
+import org.example.enteties.Card;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.snapshot.DeckSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    private DatabaseManager db;
+
+    @BeforeEach
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void testRoundTripDecodesCardsLazily() throws IOException {
+        long capitals = db.createDeck("Capitals");
+        db.addCard(capitals, "Capital of France?", "Paris");
+        db.addCard(capitals, "Capital of Ukraine?", "Київ");
+        db.createDeck("Empty");
+        long math = db.createDeck("Math");
+        db.addCard(math, "2+2?", "4");
+        db.addCard(math, "Square root of 16?", "4");
+        Path file = tempDir.resolve("decks.fcs");
+
+        DeckSnapshot.write(db, file);
+
+        try (DeckSnapshot snapshot = DeckSnapshot.open(file)) {
+            snapshot.verify();
+            assertEquals(3, snapshot.getDeckCount());
+            assertEquals(4, snapshot.getCardCount());
+            assertEquals(new DeckSummary(capitals, "Capitals", 2), snapshot.getDeck(0));
+            assertEquals(0, snapshot.getDeck(1).getCardCount());
+            assertEquals(2, snapshot.findDeck("Math"));
+            assertEquals(-1, snapshot.findDeck("Missing"));
+
+            List<Card> cards = snapshot.getCards(0);
+            assertEquals("Київ", cards.get(1).getAnswer());
+            assertEquals(db.getCardsForDeck(capitals), cards);
+            assertTrue(snapshot.getCards(1).isEmpty());
+            assertEquals("Square root of 16?", snapshot.getCards(2).get(1).getQuestion());
+            assertThrows(IndexOutOfBoundsException.class, () -> snapshot.getCards(2).get(2));
+        }
+    }
+
+    @Test
+    void testImportIntoAnotherDatabase() throws IOException {
+        new SyntheticDeckGenerator(3, 100).populate(db, 250);
+        Path file = tempDir.resolve("synthetic.fcs");
+        DeckSnapshot.write(db, file);
+
+        try (DeckSnapshot snapshot = DeckSnapshot.open(file);
+             DatabaseManager copy = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            ImportResult result = snapshot.importInto(copy);
+            assertEquals(3, result.getImportedDecks());
+            assertEquals(250, result.getInsertedCards());
+            assertEquals(db.getDeckSummaries().stream().map(DeckSummary::getCardCount).toList(),
+                    copy.getDeckSummaries().stream().map(DeckSummary::getCardCount).toList());
+        }
+    }
+
+    @Test
+    void testCorruptionIsDetected() throws IOException {
+        long deckId = db.createDeck("Checked");
+        db.addCard(deckId, "Question", "Answer");
+        Path file = tempDir.resolve("checked.fcs");
+        DeckSnapshot.write(db, file);
+        long size = Files.size(file);
+
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(size - 1);
+            int last = raw.read();
+            raw.seek(size - 1);
+            raw.write(last ^ 1);
+        }
+        try (DeckSnapshot snapshot = DeckSnapshot.open(file)) {
+            IOException error = assertThrows(IOException.class, snapshot::verify);
+            assertTrue(error.getMessage().contains("strings"));
+        }
+
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(12);
+            raw.writeInt(1_000_000);
+        }
+        assertThrows(IOException.class, () -> DeckSnapshot.open(file));
+
+        Files.writeString(file, "[]");
+        assertThrows(IOException.class, () -> DeckSnapshot.open(file));
+    }
+}
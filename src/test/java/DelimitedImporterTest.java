@@ -0,0 +1,135 @@
+import org.example.csv.DelimitedFormat;
+import org.example.csv.DelimitedImporter;
+import org.example.db.DatabaseManager;
+import org.example.db.ImportResult;
+import org.example.enteties.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimitedImporterTest {
+    private static final String CSV = "﻿#separator:comma\r\n"
+            + "#html:false\r\n"
+            + "Capital of France?,Paris,Geography\r\n"
+            + "\"Quote \"\"this\"\", please\",\"line one\nline two\",Geography\r\n"
+            + "Missing answer,,Geography\r\n"
+            + "2+2?,4\r\n"
+            + "\r\n"
+            + "one,two,three,four\r\n"
+            + "#not a header,but a question\r\n"
+            + "\"unterminated,field\n";
+
+    private DatabaseManager db;
+
+    @BeforeEach
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void testImportReportsBadRowsWithLineNumbers() throws IOException {
+        ImportResult result = importCsv(CSV, "Default", 4, 1 << 20);
+
+        assertEquals(4, result.getInsertedCards());
+        assertEquals(Map.of(6L, "Question and answer cannot be empty", 9L, "Expected 2 or 3 fields but found 4",
+                11L, "Unterminated quoted field"), result.getBadRows());
+        assertEquals(3, result.getBadRowCount());
+
+        List<Card> geography = db.getCardsForDeck(db.getDeckByName("Geography").getId());
+        assertEquals("Quote \"this\", please", geography.get(1).getQuestion());
+        assertEquals("line one\nline two", geography.get(1).getAnswer());
+        List<Card> defaults = db.getCardsForDeck(db.getDeckByName("Default").getId());
+        assertEquals("4", defaults.getFirst().getAnswer());
+        assertEquals("#not a header", defaults.get(1).getQuestion());
+    }
+
+    @Test
+    void testSmallChunksGiveTheSameResult() throws IOException {
+        ImportResult result = importCsv(CSV, "Default", 4, 7);
+
+        assertEquals(4, result.getInsertedCards());
+        assertEquals(List.of(6L, 9L, 11L), List.copyOf(result.getBadRows().keySet()));
+        assertEquals("line one\nline two", db.getCardsForDeck(db.getDeckByName("Geography").getId()).get(1).getAnswer());
+    }
+
+    @Test
+    void testFailedDeckStaysRolledBackWhenItAppearsAgain() throws IOException {
+        db.write(c -> {
+            try (Statement stmt = c.getConnection().createStatement()) {
+                return stmt.executeUpdate("CREATE TRIGGER fail_boom BEFORE INSERT ON cards WHEN NEW.question = 'boom' "
+                        + "BEGIN SELECT RAISE(ABORT, 'boom rejected'); END");
+            }
+        });
+        String csv = "A1,a,Deck A\nboom,x,Deck A\nA3,a,Deck A\nB1,b,Deck B\nB2,b,Deck B\nA4,a,Deck A\nB3,b,Deck B\n";
+
+        ImportResult result = importCsv(csv, null, 2, 1 << 20);
+
+        assertEquals(List.of("Deck A"), List.copyOf(result.getFailures().keySet()));
+        assertNull(db.getDeckByName("Deck A"));
+        assertEquals(List.of("B1", "B2", "B3"), db.getCardsForDeck(db.getDeckByName("Deck B").getId()).stream().map(Card::getQuestion).toList());
+        assertEquals(Map.of(6L, "Deck Deck A failed earlier in the file"), result.getBadRows());
+    }
+
+    @Test
+    void testDeckAppearingAgainIsMergedIntoItsEarlierRows() throws IOException {
+        String csv = "A1,a,Deck A\nA2,a,Deck A\nB1,b,Deck B\nA3,a,Deck A\nA1,a,Deck A\nA2,changed,Deck A\n";
+
+        ImportResult result = importCsv(csv, null, 2, 1 << 20);
+
+        assertTrue(result.getFailures().isEmpty());
+        assertTrue(result.getBadRows().isEmpty());
+        assertEquals(4, result.getInsertedCards());
+        assertEquals(1, result.getSkippedCards());
+        assertEquals(1, result.getUpdatedCards());
+        List<Card> cards = db.getCardsForDeck(db.getDeckByName("Deck A").getId());
+        assertEquals(List.of("A1:a", "A2:changed", "A3:a"), cards.stream().map(card -> card.getQuestion() + ":" + card.getAnswer()).toList());
+    }
+
+    @Test
+    void testLargeTsvImportKeepsFileOrderAndDeduplicates() throws IOException {
+        StringBuilder tsv = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            tsv.append("Question ").append(i).append('\t').append("Answer ").append(i).append('\t').append("Deck ").append(i / 1000).append('\n');
+        }
+        tsv.append("question  4002\tAnswer 4002\tDeck 4\n");
+        tsv.append("Question 4001\tChanged\tDeck 4\n");
+        tsv.append("Question 1\tChanged\tDeck 0\n");
+        tsv.append("no deck here\tanswer\n");
+
+        ImportResult result = new DelimitedImporter(db, DelimitedFormat.TSV, null, 4, 4096)
+                .importStream(new ByteArrayInputStream(tsv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        // The repeat differs only in spacing and case; another answer to a question is another card
+        assertEquals(5001, result.getInsertedCards());
+        assertEquals(2, result.getUpdatedCards());
+        assertEquals(Map.of(5004L, "Missing deck name"), result.getBadRows());
+        // Deck 0 appears again at the end and its row updates the card written first
+        List<Card> first = db.getCardsForDeck(db.getDeckByName("Deck 0").getId());
+        assertEquals(1000, first.size());
+        assertEquals("Changed", first.get(1).getAnswer());
+        List<Card> last = db.getCardsForDeck(db.getDeckByName("Deck 4").getId());
+        assertEquals(1001, last.size());
+        assertEquals("Answer 4001", last.get(1).getAnswer());
+        assertEquals("question  4002", last.get(2).getQuestion());
+        assertEquals("Question 4001:Changed", last.getLast().getQuestion() + ":" + last.getLast().getAnswer());
+    }
+
+    private ImportResult importCsv(String text, String defaultDeck, int parallelism, int chunkSize) throws IOException {
+        return new DelimitedImporter(db, DelimitedFormat.CSV, defaultDeck, parallelism, chunkSize)
+                .importStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
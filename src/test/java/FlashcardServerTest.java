@@ -0,0 +1,212 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.example.cache.DeckCache;
+import org.example.db.DatabaseManager;
+import org.example.db.DeckImporter;
+import org.example.enteties.Card;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+import org.example.server.FlashcardServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlashcardServerTest {
+    private final Gson gson = new Gson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private DatabaseManager db;
+    private FlashcardServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+        server = new FlashcardServer(db, new DeckCache(db), Clock.systemUTC(), 0, 64, 1000, 5000).start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        db.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testDeckAndCardCrud() throws Exception {
+        HttpResponse<String> created = send("POST", "/decks", "{\"name\":\"Http\"}");
+        assertEquals(201, created.statusCode());
+        long deckId = gson.fromJson(created.body(), JsonObject.class).get("id").getAsLong();
+
+        assertEquals(201, send("POST", "/decks/" + deckId + "/cards", "{\"question\":\"2+2?\",\"answer\":\"4\"}").statusCode());
+        JsonObject deck = gson.fromJson(send("GET", "/decks/" + deckId, null).body(), JsonObject.class);
+        JsonArray cards = deck.getAsJsonArray("cards");
+        assertEquals(1, cards.size());
+        long cardId = cards.get(0).getAsJsonObject().get("id").getAsLong();
+
+        assertEquals(204, send("PUT", "/cards/" + cardId, "{\"question\":\"3+3?\",\"answer\":\"6\"}").statusCode());
+        deck = gson.fromJson(send("GET", "/decks/" + deckId, null).body(), JsonObject.class);
+        assertEquals("6", deck.getAsJsonArray("cards").get(0).getAsJsonObject().get("answer").getAsString());
+
+        assertEquals(409, send("POST", "/decks", "{\"name\":\"Http\"}").statusCode());
+        HttpResponse<String> duplicate = send("POST", "/decks/" + deckId + "/cards", "{\"question\":\" 3+3? \",\"answer\":\"6\"}");
+        assertEquals(409, duplicate.statusCode());
+        assertTrue(duplicate.body().contains("already has this card"));
+        assertEquals(400, send("POST", "/decks/" + deckId + "/cards", "{\"question\":\"Q\"}").statusCode());
+        assertEquals(404, send("GET", "/decks/999", null).statusCode());
+        assertEquals(204, send("DELETE", "/decks/" + deckId, null).statusCode());
+        assertEquals(404, send("GET", "/decks/" + deckId, null).statusCode());
+    }
+
+    @Test
+    void testStudyFlow() throws Exception {
+        long deckId = db.createDeck("Study");
+        db.addCard(deckId, "Capital of France?", "Paris");
+
+        HttpResponse<String> next = send("GET", "/decks/" + deckId + "/study/next", null);
+        JsonObject card = gson.fromJson(next.body(), JsonObject.class);
+        assertEquals("Capital of France?", card.get("question").getAsString());
+        assertFalse(card.has("answer"));
+
+        HttpResponse<String> graded = send("POST", "/cards/" + card.get("cardId").getAsLong() + "/answer", "{\"answer\":\"paris\"}");
+        assertTrue(gson.fromJson(graded.body(), JsonObject.class).get("correct").getAsBoolean());
+        // The review is committed write-behind, so the card stays due until the writer catches up
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        int status;
+        while ((status = send("GET", "/decks/" + deckId + "/study/next", null).statusCode()) == 200 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(204, status);
+    }
+
+    @Test
+    void testCloseCommitsQueuedReviews() throws Exception {
+        long deckId = db.createDeck("Graded");
+        for (int i = 0; i < 5; i++) {
+            db.addCard(deckId, "Q" + i, "A" + i);
+        }
+        FlashcardServer graded = new FlashcardServer(db, new DeckCache(db), Clock.systemUTC(), 0, 64, 1000, 5000).start();
+        for (Card card : db.getCardsForDeck(deckId)) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + graded.getPort() + "/cards/" + card.getId() + "/answer"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"answer\":\"" + card.getAnswer() + "\"}")).build();
+            assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        graded.close();
+        assertEquals(5, db.getDeckStats().getFirst().getReviews());
+        assertEquals(5, db.getHardestCards(deckId, 1, 10).size());
+    }
+
+    @Test
+    void testExportImportAndSearch() throws Exception {
+        long deckId = db.createDeck("Exported");
+        db.addCard(deckId, "Who was the first president?", "George Washington");
+        String exported = send("GET", "/export", null).body();
+        db.deleteDeck(deckId);
+
+        JsonObject result = gson.fromJson(send("POST", "/import", exported).body(), JsonObject.class);
+        assertEquals(1, result.get("importedCards").getAsInt());
+        JsonArray hits = gson.fromJson(send("GET", "/search?q=president", null).body(), JsonArray.class);
+        assertEquals(1, hits.size());
+    }
+
+    @Test
+    void testMalformedImportIsBadRequest() throws Exception {
+        for (String body : List.of("[{\"name\":\"Cut\",\"cards\":[", "42", "[{\"name\":\"Bad\",\"cards\":{}}]", "[}")) {
+            HttpResponse<String> response = send("POST", "/import", body);
+            assertEquals(400, response.statusCode(), body);
+            assertTrue(response.body().contains("Malformed JSON"), body);
+        }
+        assertEquals(201, send("POST", "/decks", "{\"name\":\"Still writable\"}").statusCode());
+    }
+
+    @Test
+    void testStalledUploadDoesNotBlockWrites() throws Exception {
+        try (Socket upload = new Socket("localhost", server.getPort())) {
+            OutputStream out = upload.getOutputStream();
+            out.write(("POST /import HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1000\r\n\r\n[{\"name\":\"Slow\",")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(200);
+            // The rest of the upload never arrives, and other writes still go through
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/decks"))
+                    .timeout(Duration.ofSeconds(2))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"During upload\"}")).build();
+            assertEquals(201, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    @Test
+    void testUnknownMethodsShareOneMetric() throws Exception {
+        OperationMetrics other = Metrics.operation("http.other");
+        long before = other.getCalls();
+        assertEquals(404, send("BREW", "/decks", null).statusCode());
+        for (int i = 0; i < 100 && other.getCalls() == before; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(before + 1, other.getCalls());
+        assertTrue(Metrics.snapshot().stream().noneMatch(metrics -> metrics.getName().equals("http.BREW")));
+    }
+
+    @Test
+    void testConcurrentClients() throws Exception {
+        long deckId = db.createDeck("Concurrent");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/decks/" + deckId + "/cards"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"question\":\"Q" + i + "\",\"answer\":\"A\"}")).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(201, response.get().statusCode());
+        }
+        assertEquals(200, db.getCardsForDeck(deckId).size());
+    }
+
+    @Test
+    void testTimedOutRequestKeepsItsSlotUntilTheRouteFinishes() throws Exception {
+        try (FlashcardServer small = new FlashcardServer(db, new DeckCache(db), Clock.systemUTC(), 0, 1, 100, 300).start()) {
+            String url = "http://localhost:" + small.getPort() + "/decks";
+            HttpResponse<String> timedOut;
+            // The importer holds the only connection of the in-memory database, so the route blocks on it
+            try (DeckImporter importer = db.newImporter(DatabaseManager.DEFAULT_BATCH_SIZE)) {
+                timedOut = client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+                assertEquals(503, client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+                importer.finish();
+            }
+            assertEquals(504, timedOut.statusCode());
+            int status = 503;
+            for (int i = 0; i < 50 && status == 503; i++) {
+                Thread.sleep(20);
+                status = client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).statusCode();
+            }
+            assertEquals(200, status);
+        }
+    }
+
+    @Test
+    void testInternalFailuresAreServerErrors() throws Exception {
+        db.close();
+        HttpResponse<String> response = send("GET", "/decks", null);
+        assertEquals(500, response.statusCode());
+        assertFalse(response.body().contains("closed"));
+    }
+}
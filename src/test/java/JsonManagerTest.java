@@ -1,15 +1,37 @@
+import org.example.db.DatabaseManager;
+import org.example.db.DeckSummary;
+import org.example.db.ImportResult;
 import org.example.enteties.Card;
 import org.example.enteties.Deck;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.json.BundleManifest;
+import org.example.json.DeckBundle;
 import org.example.json.JsonManager;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class JsonManagerTest {
 
@@ -48,4 +70,110 @@ class JsonManagerTest {
         List<Deck> loaded = JsonManager.loadDecksFromJson("nonexistent.json");
         assertNull(loaded);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDeckBundleRoundTrip(@TempDir Path tempDir) throws IOException {
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:");
+             DatabaseManager copy = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            new SyntheticDeckGenerator(5, 300).populate(db, 1000);
+            db.createDeck("Empty");
+            Path dir = tempDir.resolve("bundle");
+
+            BundleManifest manifest = DeckBundle.write(db, dir, 3);
+            assertTrue(DeckBundle.isBundle(dir));
+            assertEquals(5, manifest.getDecks().size());
+            assertEquals(db.getDeckSummaries().stream().mapToInt(DeckSummary::getCardCount).sum(),
+                    manifest.getDecks().stream().mapToInt(BundleManifest.Entry::getCards).sum());
+            assertTrue(manifest.getTotalBytes() * 2 < manifest.getTotalRawBytes());
+
+            ImportResult result = DeckBundle.read(copy, dir, 3);
+            assertTrue(result.getFailures().isEmpty());
+            assertEquals(5, result.getImportedDecks());
+            List<DeckSummary> expected = db.getDeckSummaries();
+            List<DeckSummary> actual = copy.getDeckSummaries();
+            assertEquals(expected.stream().map(DeckSummary::getName).toList(), actual.stream().map(DeckSummary::getName).toList());
+            assertEquals(expected.stream().map(DeckSummary::getCardCount).toList(), actual.stream().map(DeckSummary::getCardCount).toList());
+
+            // Entries are plain one-deck exports
+            try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(dir.resolve(manifest.getDecks().getFirst().getFile()))))) {
+                assertEquals(1, JsonManager.importDecksStreaming(copy, reader).getImportedDecks());
+            }
+        }
+    }
+
+    @Test
+    void testDeckBundleEntriesOverlapWithOneReader(@TempDir Path tempDir) throws Exception {
+        Path dir = tempDir.resolve("bundle");
+        Files.createDirectories(dir);
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite:" + tempDir.resolve("overlap.db"), 1)) {
+            new SyntheticDeckGenerator(5, 10_000).populate(db, 20_000);
+            // Both entries go into pipes that are not drained until each entry has started writing.
+            // With a single reader that only happens if neither entry holds it while compressing
+            List<Path> pipes = new ArrayList<>();
+            for (DeckSummary deck : db.getDeckSummaries()) {
+                Path pipe = dir.resolve(String.format("deck-%06d.json.gz", deck.getId()));
+                Process mkfifo = new ProcessBuilder("mkfifo", pipe.toString()).start();
+                assumeTrue(mkfifo.waitFor() == 0, "mkfifo is not available");
+                pipes.add(pipe);
+            }
+            CountDownLatch started = new CountDownLatch(pipes.size());
+            CountDownLatch drain = new CountDownLatch(1);
+            ExecutorService readers = Executors.newFixedThreadPool(pipes.size());
+            try {
+                List<Future<byte[]>> drained = new ArrayList<>();
+                for (Path pipe : pipes) {
+                    drained.add(readers.submit(() -> {
+                        try (InputStream in = Files.newInputStream(pipe)) {
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            bytes.write(in.read());
+                            started.countDown();
+                            drain.await();
+                            in.transferTo(bytes);
+                            return bytes.toByteArray();
+                        }
+                    }));
+                }
+                CompletableFuture<BundleManifest> written = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return DeckBundle.write(db, dir, 2);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                boolean overlapped = started.await(10, TimeUnit.SECONDS);
+                drain.countDown();
+                assertTrue(overlapped);
+
+                BundleManifest manifest = written.get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < pipes.size(); i++) {
+                    CRC32C crc = new CRC32C();
+                    crc.update(drained.get(i).get());
+                    assertEquals(manifest.getDecks().get(i).getCrc32c(), crc.getValue());
+                    assertEquals(10_000, manifest.getDecks().get(i).getCards());
+                }
+            } finally {
+                drain.countDown();
+                readers.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void testDeckBundleReportsCorruptEntryAndImportsTheRest(@TempDir Path tempDir) throws IOException {
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:");
+             DatabaseManager copy = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            new SyntheticDeckGenerator(5, 100).populate(db, 300);
+            BundleManifest manifest = DeckBundle.write(db, tempDir, 2);
+            Path corrupt = tempDir.resolve(manifest.getDecks().get(1).getFile());
+            byte[] bytes = Files.readAllBytes(corrupt);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(corrupt, bytes);
+            Files.delete(tempDir.resolve(manifest.getDecks().get(2).getFile()));
+
+            ImportResult result = DeckBundle.read(copy, tempDir, 2);
+            assertEquals(1, result.getImportedDecks());
+            assertEquals(List.of("Synthetic 2", "Synthetic 3"), List.copyOf(result.getFailures().keySet()));
+            assertTrue(result.getFailures().get("Synthetic 2").contains("Checksum mismatch"));
+        }
+    }
+}
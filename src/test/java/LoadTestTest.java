@@ -0,0 +1,76 @@
+import org.example.db.DatabaseManager;
+import org.example.generator.SyntheticDeckGenerator;
+import org.example.loadtest.LoadReport;
+import org.example.loadtest.LoadTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestTest {
+    @Test
+    void testConcurrentLearnersRunEveryWorkload(@TempDir Path tempDir) throws Exception {
+        LoadTest.Config config = new LoadTest.Config();
+        config.setLearners(16);
+        config.setDurationMillis(1000);
+        config.setCards(400);
+        config.setCardsPerDeck(100);
+        config.setMix(new int[]{40, 40, 10, 10});
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite:" + tempDir.resolve("load.db"), 2)) {
+            LoadTest test = new LoadTest(db, config);
+            assertTrue(test.prepare() > 0);
+            assertEquals(0, test.prepare());
+            assertEquals(400, db.getDeckSummaries().stream().mapToLong(deck -> deck.getCardCount()).sum());
+
+            LoadReport report = test.run();
+            assertEquals(0, report.getTotalErrors());
+            for (LoadTest.Workload workload : LoadTest.Workload.values()) {
+                assertTrue(report.getLatency(workload).count() > 0, workload.name());
+            }
+            assertTrue(report.getThroughput() > 0);
+            assertTrue(report.getTotalLatency().percentile(0.50) <= report.getTotalLatency().percentile(0.99));
+            // Every learner imports into its own deck
+            assertTrue(db.getDeckSummaries().stream().anyMatch(deck -> deck.getName().startsWith("Load learner ")));
+            assertTrue(db.getDeckStats().stream().mapToLong(stats -> stats.getReviews()).sum() >= report.getLatency(LoadTest.Workload.STUDY).count());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            report.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+            String text = out.toString(StandardCharsets.UTF_8);
+            assertTrue(text.startsWith("workload\tops\terrors\tbusy\t"));
+            assertTrue(text.contains("\nstudy\t"));
+            assertTrue(text.contains("\nwrite_lock_waits\t"));
+        }
+    }
+
+    @Test
+    void testGeneratedQuestionsNeverRepeat() {
+        // One-word questions from a heavily skewed vocabulary would collide without the card numbers
+        SyntheticDeckGenerator generator = new SyntheticDeckGenerator(9, 500, 1, 1, 1, 1, 8);
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            generator.populate(db, 1000);
+            assertEquals(List.of(500L, 500L), db.getDeckSummaries().stream().map(deck -> (long) deck.getCardCount()).toList());
+        }
+        assertEquals(1000, generator.decks(1000).stream()
+                .flatMap(deck -> deck.getCards().stream())
+                .map(card -> card.getQuestion())
+                .distinct()
+                .count());
+    }
+
+    @Test
+    void testRejectsInvalidMix() {
+        LoadTest.Config config = new LoadTest.Config();
+        config.setMix(new int[]{1, 2});
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            assertThrows(IllegalArgumentException.class, () -> new LoadTest(db, config));
+            config.setMix(new int[]{0, 0, 0, 0});
+            assertThrows(IllegalArgumentException.class, () -> new LoadTest(db, config));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import org.example.db.DatabaseManager;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.metrics.MetricsReporter;
+import org.example.metrics.OperationMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_000, histogram.percentile(0.50), 500_000 * 0.125);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 * 0.125);
+        assertTrue(histogram.percentile(1.0) <= histogram.max());
+    }
+
+    @Test
+    void testDatabaseOperationsAreRecordedAndPublished() throws Exception {
+        OperationMetrics addCard = Metrics.operation("db.addCard");
+        long callsBefore = addCard.getCalls();
+        long errorsBefore = Metrics.operation("db.createDeck").getErrors();
+        try (DatabaseManager db = DatabaseManager.open("jdbc:sqlite::memory:")) {
+            long deckId = db.createDeck("Metrics");
+            db.addCard(deckId, "Q", "A");
+            db.addCard(deckId, "Q2", "A2");
+            assertThrows(Exception.class, () -> db.createDeck("Metrics"));
+        }
+        assertEquals(callsBefore + 2, addCard.getCalls());
+        assertEquals(errorsBefore + 1, Metrics.operation("db.createDeck").getErrors());
+
+        Object calls = ManagementFactory.getPlatformMBeanServer().getAttribute(Metrics.objectName("db.addCard"), "Calls");
+        assertEquals(addCard.getCalls(), calls);
+    }
+
+    @Test
+    void testReporterDump(@TempDir Path tempDir) throws Exception {
+        Metrics.time("test.operation", () -> 42);
+        Path log = tempDir.resolve("metrics.log");
+        MetricsReporter.dump(log.toString());
+        assertTrue(Files.readString(log).contains("test.operation calls=1"));
+    }
+}
@@ -0,0 +1,139 @@
+import org.example.db.DatabaseManager;
+import org.example.enteties.Review;
+import org.example.enteties.ScheduledCard;
+import org.example.study.ReviewWriter;
+import org.example.study.Sm2Scheduler;
+import org.example.study.StudyQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewWriterTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private DatabaseManager db;
+
+    @BeforeEach
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void testCloseFlushesAllSubmittedReviews() {
+        long deckId = db.createDeck("Reviews");
+        db.addCard(deckId, "Q", "A");
+        ReviewWriter writer = new ReviewWriter(db, 100, 16, 50, ReviewWriter.OverflowPolicy.BLOCK);
+        Sm2Scheduler scheduler = new Sm2Scheduler(db, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC), writer);
+
+        ScheduledCard card = new StudyQueue(db, deckId, NOW).next();
+        for (int i = 0; i < 250; i++) {
+            scheduler.review(card, i % 2 == 0 ? Sm2Scheduler.GRADE_CORRECT : Sm2Scheduler.GRADE_INCORRECT);
+        }
+        writer.close();
+
+        assertEquals(250, writer.getWritten());
+        assertEquals(0, writer.getDropped());
+        assertEquals(250, countReviews());
+        assertEquals(125, countCorrect());
+        assertEquals(card.getDueAt(), db.getScheduledCard(card.getCardId()).getDueAt());
+    }
+
+    @Test
+    void testDropPolicyCountsReviewsThatDoNotFit() {
+        long deckId = db.createDeck("Overflow");
+        db.addCard(deckId, "Q", "A");
+        ScheduledCard card = new StudyQueue(db, deckId, NOW).next();
+        ReviewWriter writer = new ReviewWriter(db, 2, 1, 10, ReviewWriter.OverflowPolicy.DROP);
+
+        // Holding the writer connection stalls the flush, so the queue fills up
+        db.write(c -> {
+            for (int i = 0; i < 20; i++) {
+                writer.submit(Review.of(card, Sm2Scheduler.GRADE_CORRECT, NOW + i));
+            }
+            return null;
+        });
+        writer.close();
+
+        assertTrue(writer.getDropped() > 0);
+        assertEquals(20, writer.getWritten() + writer.getDropped());
+        assertEquals(writer.getWritten(), countReviews());
+        assertFalse(writer.submit(Review.of(card, Sm2Scheduler.GRADE_CORRECT, NOW)));
+    }
+
+    @Test
+    void testSubmitRacingWithCloseNeverLosesReviews() throws Exception {
+        long deckId = db.createDeck("Racing");
+        db.addCard(deckId, "Q", "A");
+        ScheduledCard card = new StudyQueue(db, deckId, NOW).next();
+        for (ReviewWriter.OverflowPolicy policy : ReviewWriter.OverflowPolicy.values()) {
+            long before = countReviews();
+            ReviewWriter writer = new ReviewWriter(db, 8, 4, 5, policy);
+            int submitters = 8;
+            int perSubmitter = 200;
+            CountDownLatch started = new CountDownLatch(submitters);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < submitters; t++) {
+                threads.add(Thread.ofVirtual().start(() -> {
+                    started.countDown();
+                    for (int i = 0; i < perSubmitter; i++) {
+                        writer.submit(Review.of(card, Sm2Scheduler.GRADE_CORRECT, NOW + i));
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(5);
+            writer.close();
+            for (Thread thread : threads) {
+                assertTrue(thread.join(Duration.ofSeconds(10)), "submitter blocked after close");
+            }
+
+            assertEquals(submitters * perSubmitter, writer.getWritten() + writer.getDropped(), policy.name());
+            assertEquals(writer.getWritten(), countReviews() - before, policy.name());
+            assertEquals(0, writer.getPending());
+        }
+    }
+
+    @Test
+    void testSchedulerWithoutWriterPersistsImmediately() {
+        long deckId = db.createDeck("Direct");
+        db.addCard(deckId, "Q", "A");
+        Sm2Scheduler scheduler = new Sm2Scheduler(db, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+        ScheduledCard card = scheduler.review(new StudyQueue(db, deckId, NOW).next(), Sm2Scheduler.GRADE_CORRECT);
+
+        assertEquals(1, countReviews());
+        assertEquals(1, db.getScheduledCard(card.getCardId()).getRepetitions());
+    }
+
+    private long countReviews() {
+        return count("SELECT COUNT(*) FROM review_log");
+    }
+
+    private long countCorrect() {
+        return count("SELECT COUNT(*) FROM review_log WHERE correct = 1");
+    }
+
+    private long count(String sql) {
+        return db.read(c -> {
+            try (ResultSet rs = c.prepare(sql).executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+}
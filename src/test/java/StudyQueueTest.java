@@ -0,0 +1,206 @@
+import org.example.cache.CardStore;
+import org.example.db.DatabaseManager;
+import org.example.enteties.ScheduledCard;
+import org.example.metrics.Metrics;
+import org.example.metrics.OperationMetrics;
+import org.example.study.Sm2Scheduler;
+import org.example.study.RandomSession;
+import org.example.study.StudyQueue;
+import org.example.study.StudySession;
+import org.example.study.WeakCardsQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudyQueueTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private DatabaseManager db;
+    private Sm2Scheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        db = DatabaseManager.open("jdbc:sqlite::memory:");
+        scheduler = new Sm2Scheduler(db, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+    }
+
+    @Test
+    void testQueueTakesTextFromCardStore() {
+        long deckId = db.createDeck("Stored");
+        for (int i = 0; i < 5; i++) {
+            db.addCard(deckId, "Q" + i, "A" + i);
+        }
+        CardStore store = CardStore.of(db.getCardsForDeck(deckId));
+        db.addCard(deckId, "Late", "Fetched");
+        StudyQueue queue = new StudyQueue(db, deckId, NOW, 2, store);
+        List<String> cards = new ArrayList<>();
+        for (ScheduledCard card = queue.next(); card != null; card = queue.next()) {
+            cards.add(card.getQuestion() + "=" + card.getAnswer());
+        }
+        assertEquals(List.of("Q0=A0", "Q1=A1", "Q2=A2", "Q3=A3", "Q4=A4", "Late=Fetched"), cards);
+    }
+
+    @Test
+    void testQueueServesAllDueCardsAcrossPages() {
+        long deckId = db.createDeck("Paged");
+        for (int i = 0; i < 10; i++) {
+            db.addCard(deckId, "Q" + i, "A" + i);
+        }
+        StudyQueue queue = new StudyQueue(db, deckId, NOW, 3);
+        List<String> questions = new ArrayList<>();
+        for (ScheduledCard card = queue.next(); card != null; card = queue.next()) {
+            questions.add(card.getQuestion());
+        }
+        assertEquals(10, questions.size());
+        assertEquals("Q0", questions.getFirst());
+        assertEquals("Q9", questions.getLast());
+    }
+
+    @Test
+    void testReviewedCardsAreNoLongerDue() {
+        long deckId = db.createDeck("Reviewed");
+        db.addCard(deckId, "Q1", "A1");
+        db.addCard(deckId, "Q2", "A2");
+        scheduler.review(new StudyQueue(db, deckId, NOW).next(), Sm2Scheduler.GRADE_CORRECT);
+
+        StudyQueue queue = new StudyQueue(db, deckId, NOW);
+        assertEquals("Q2", queue.next().getQuestion());
+        assertNull(queue.next());
+
+        StudyQueue tomorrow = new StudyQueue(db, deckId, NOW + TimeUnit.DAYS.toMillis(1));
+        assertEquals("Q2", tomorrow.next().getQuestion());
+        assertEquals("Q1", tomorrow.next().getQuestion());
+    }
+
+    @Test
+    void testSm2Intervals() {
+        ScheduledCard card = new ScheduledCard();
+        card.setEase(2.5);
+        Sm2Scheduler.apply(card, 5, 0);
+        assertEquals(1, card.getIntervalDays());
+        Sm2Scheduler.apply(card, 5, 0);
+        assertEquals(6, card.getIntervalDays());
+        Sm2Scheduler.apply(card, 5, 0);
+        assertEquals(16, card.getIntervalDays());
+        assertEquals(2.8, card.getEase(), 1e-9);
+
+        Sm2Scheduler.apply(card, Sm2Scheduler.GRADE_INCORRECT, 0);
+        assertEquals(1, card.getIntervalDays());
+        assertEquals(0, card.getRepetitions());
+        assertEquals(TimeUnit.DAYS.toMillis(1), card.getDueAt());
+    }
+
+    @Test
+    void testShuffleAsksEveryCardOnceInRandomOrder() {
+        long deckId = deckWith(50);
+        RandomSession session = RandomSession.shuffle(db, deckId, new Random(7), 4);
+        List<String> questions = questions(session);
+        assertEquals(50, questions.size());
+        assertEquals(50, new HashSet<>(questions).size());
+        assertNotEquals(questions.stream().sorted().toList(), questions);
+        assertEquals(questions, questions(RandomSession.shuffle(db, deckId, new Random(7), 4)));
+    }
+
+    @Test
+    void testShuffleAsksFirstCardWithoutScanningTheDeck() {
+        long deckId = deckWith(2000);
+        OperationMetrics scans = Metrics.operation("db.forEachCardId");
+        long before = scans.getCalls();
+        RandomSession session = RandomSession.shuffle(db, deckId, new Random(11));
+        assertNotNull(session.next());
+        assertEquals(before, scans.getCalls());
+        assertEquals(1999, new HashSet<>(questions(session)).size());
+    }
+
+    @Test
+    void testShuffleSkipsOtherDecksInterleavedInTheIdRange() {
+        long deckId = db.createDeck("Mine");
+        long otherId = db.createDeck("Other");
+        for (int i = 0; i < 60; i++) {
+            db.addCard(deckId, "Q" + i, "A" + i);
+            db.addCard(otherId, "O" + i, "A" + i);
+            db.addCard(otherId, "P" + i, "A" + i);
+        }
+        List<String> questions = questions(RandomSession.shuffle(db, deckId, new Random(5), 2));
+        assertEquals(60, questions.size());
+        assertEquals(60, new HashSet<>(questions).size());
+        assertTrue(questions.stream().allMatch(question -> question.startsWith("Q")));
+        assertNull(RandomSession.shuffle(db, db.createDeck("Empty"), new Random(5)).next());
+    }
+
+    @Test
+    void testSampleAsksAtMostCountDistinctCards() {
+        long deckId = deckWith(50);
+        List<String> questions = questions(RandomSession.sample(db, deckId, 10, new Random(3)));
+        assertEquals(10, questions.size());
+        assertEquals(10, new HashSet<>(questions).size());
+        assertEquals(50, questions(RandomSession.sample(db, deckId, 500, new Random(3))).size());
+        assertNull(RandomSession.sample(db, db.createDeck("Empty"), 5, new Random(3)).next());
+    }
+
+    @Test
+    void testSessionSkipsCardsDeletedAfterItStarted() {
+        long deckId = deckWith(3);
+        RandomSession session = RandomSession.shuffle(db, deckId, new Random(1), 1);
+        ScheduledCard first = session.next();
+        db.getCardsForDeck(deckId).stream()
+                .filter(card -> card.getId() != first.getCardId())
+                .findFirst()
+                .ifPresent(card -> db.deleteCard(card.getId()));
+        assertEquals(1, questions(session).size());
+    }
+
+    @Test
+    void testWeakCardsComeFirstAndOnlyOnce() {
+        long deckId = deckWith(6);
+        StudyQueue due = new StudyQueue(db, deckId, NOW);
+        ScheduledCard failed = due.next();
+        ScheduledCard passed = due.next();
+        scheduler.review(failed, Sm2Scheduler.GRADE_INCORRECT);
+        scheduler.review(passed, 5);
+
+        WeakCardsQueue weak = new WeakCardsQueue(db, deckId, 2);
+        ScheduledCard first = weak.next();
+        assertEquals(failed.getCardId(), first.getCardId());
+        // Perfect answers lift its ease past the new cards, behind the session's cursor
+        for (int i = 0; i < 6; i++) {
+            scheduler.review(first, 5);
+        }
+        List<String> rest = questions(weak);
+        assertEquals(5, rest.size());
+        assertFalse(rest.contains(failed.getQuestion()));
+        assertEquals(passed.getQuestion(), rest.getLast());
+    }
+
+    private long deckWith(int cards) {
+        long deckId = db.createDeck("Deck " + cards);
+        for (int i = 0; i < cards; i++) {
+            db.addCard(deckId, "Q" + i, "A" + i);
+        }
+        return deckId;
+    }
+
+    private static List<String> questions(StudySession session) {
+        List<String> questions = new ArrayList<>();
+        for (ScheduledCard card = session.next(); card != null; card = session.next()) {
+            questions.add(card.getQuestion());
+        }
+        return questions;
+    }
+}